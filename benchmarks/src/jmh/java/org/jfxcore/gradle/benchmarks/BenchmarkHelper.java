@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.benchmarks;
+
+import org.jfxcore.gradle.compiler.Compiler;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class BenchmarkHelper {
+
+    private BenchmarkHelper() {}
+
+    /**
+     * Returns the compiler jar on the benchmark classpath.
+     */
+    public static File getCompilerJar() throws ClassNotFoundException, URISyntaxException {
+        Class<?> compilerClass = Class.forName(Compiler.COMPILER_NAME);
+        return new File(compilerClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    /**
+     * Creates a directory tree with the specified number of subdirectories, each of which contains
+     * the specified number of markup files and an equal number of Java source files.
+     */
+    public static void createSourceTree(Path baseDir, int directories, int filesPerDirectory) throws IOException {
+        for (int i = 0; i < directories; ++i) {
+            Path dir = baseDir.resolve("pkg" + i);
+            Files.createDirectories(dir);
+
+            for (int j = 0; j < filesPerDirectory; ++j) {
+                Files.writeString(dir.resolve("View" + j + ".fxml"), SyntheticProjectGenerator.markupFile(j));
+                Files.writeString(dir.resolve("View" + j + ".java"), SyntheticProjectGenerator.codeBehindFile("pkg" + i, j));
+            }
+        }
+    }
+
+    public static void deleteTree(Path baseDir) throws IOException {
+        if (!Files.exists(baseDir)) {
+            return;
+        }
+
+        try (var stream = Files.walk(baseDir)) {
+            for (Path path : stream.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates a multi-project build that applies the plugin to a number of application projects,
+ * each of which contains a number of markup files with code-behind classes.
+ * <p>
+ * Usage: {@code SyntheticProjectGenerator <outputDir> <pluginBuildDir> <projects> <markupFilesPerProject>}
+ */
+public final class SyntheticProjectGenerator {
+
+    private SyntheticProjectGenerator() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            throw new IllegalArgumentException(
+                "Usage: SyntheticProjectGenerator <outputDir> <pluginBuildDir> <projects> <markupFilesPerProject>");
+        }
+
+        generate(Path.of(args[0]), Path.of(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+    }
+
+    public static void generate(Path outputDir, Path pluginBuildDir, int projects, int markupFiles)
+            throws IOException {
+        BenchmarkHelper.deleteTree(outputDir);
+        Files.createDirectories(outputDir);
+
+        var settings = new StringBuilder();
+        settings.append("pluginManagement {\n")
+                .append("    includeBuild '").append(pluginBuildDir.toAbsolutePath().toString().replace('\\', '/'))
+                .append("'\n}\n\n")
+                .append("rootProject.name = 'synthetic'\n\n");
+
+        for (int i = 0; i < projects; ++i) {
+            settings.append("include 'app").append(i).append("'\n");
+            generateProject(outputDir.resolve("app" + i), "app" + i, markupFiles);
+        }
+
+        Files.writeString(outputDir.resolve("settings.gradle"), settings);
+        Files.writeString(outputDir.resolve("gradle.properties"), "org.gradle.parallel=true\n");
+    }
+
+    private static void generateProject(Path projectDir, String name, int markupFiles) throws IOException {
+        String packageName = "org.synthetic." + name;
+        Path sourceDir = projectDir.resolve("src/main/java").resolve(packageName.replace('.', '/'));
+        Files.createDirectories(sourceDir);
+
+        Files.writeString(projectDir.resolve("build.gradle"), """
+            plugins {
+                id 'java'
+                id 'org.jfxcore.javafxplugin'
+            }
+
+            repositories {
+                mavenCentral()
+                maven { url 'https://oss.sonatype.org/content/repositories/snapshots' }
+            }
+
+            javafx {
+                modules = [ 'javafx.controls' ]
+                markupReports = true
+            }
+            """);
+
+        for (int i = 0; i < markupFiles; ++i) {
+            Files.writeString(sourceDir.resolve("View" + i + ".fxml"), markupFile(i));
+            Files.writeString(sourceDir.resolve("View" + i + ".java"), codeBehindFile(packageName, i));
+        }
+    }
+
+    static String markupFile(int index) {
+        var builder = new StringBuilder();
+        builder.append("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <?import javafx.scene.control.*?>
+            <?import javafx.scene.layout.*?>
+            <VBox xmlns="http://javafx.com/javafx" xmlns:fx="http://jfxcore.org/fxml/2.0">
+            """);
+
+        // Vary the size of the markup files, so that the partitioning of the files is exercised.
+        for (int i = 0; i < 5 + index % 20; ++i) {
+            builder.append("    <Label text=\"Label ").append(i).append("\"/>\n");
+        }
+
+        builder.append("</VBox>\n");
+        return builder.toString();
+    }
+
+    static String codeBehindFile(String packageName, int index) {
+        return """
+            package %1$s;
+
+            public class View%2$d extends View%2$dBase {
+                public View%2$d() {
+                    initializeComponent();
+                }
+            }
+            """.formatted(packageName, index);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.compiler;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jfxcore.gradle.benchmarks.BenchmarkHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bridge between the plugin and the compiler: creating a compiler instance,
+ * and extracting the diagnostic information of a markup exception.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompilerBenchmark {
+
+    private static final Logger LOGGER = Logging.getLogger(CompilerBenchmark.class);
+
+    private CompilerClassLoader classLoader;
+    private ExceptionHelper exceptionHelper;
+    private RuntimeException markupException;
+    private Path markupDir;
+
+    @Setup
+    public void setup() throws Throwable {
+        URL[] urls = new URL[] { BenchmarkHelper.getCompilerJar().toURI().toURL() };
+        classLoader = new CompilerClassLoader(urls, getClass().getClassLoader());
+        exceptionHelper = new ExceptionHelper(classLoader);
+
+        markupDir = Files.createTempDirectory("markup");
+        Files.writeString(markupDir.resolve("Invalid.fxml"), "<?xml version=\"1.0\"?>\n<VBox>\n    <Label\n");
+
+        try {
+            new Compiler(LOGGER, Set.of(), classLoader).parseFiles(markupDir.toFile());
+        } catch (RuntimeException ex) {
+            if (exceptionHelper.isMarkupException(ex)) {
+                markupException = ex;
+            } else {
+                throw ex;
+            }
+        }
+
+        if (markupException == null) {
+            throw new IllegalStateException("Expected a markup exception");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classLoader.close();
+        BenchmarkHelper.deleteTree(markupDir);
+    }
+
+    @Benchmark
+    public Compiler newCompiler() throws Exception {
+        return new Compiler(LOGGER, Set.of(), classLoader);
+    }
+
+    @Benchmark
+    public String formatException() {
+        return exceptionHelper.format(markupException);
+    }
+
+    @Benchmark
+    public int getExceptionLocation() {
+        return exceptionHelper.getLine(markupException) + exceptionHelper.getColumn(markupException);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import org.jfxcore.gradle.JavaFXModule;
+import org.jfxcore.gradle.JavaFXPlatform;
+import org.jfxcore.gradle.benchmarks.BenchmarkHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the classpath filtering that is applied to the run task, on a classpath that
+ * contains the JavaFX jars of all modules and a number of other dependencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExecTaskBenchmark {
+
+    @Param({"50", "500"})
+    public int dependencies;
+
+    private final ExecTask.NonJavaFXJarSpec nonJavaFXJarSpec = new ExecTask.NonJavaFXJarSpec();
+    private final ExecTask.JavaFXJarSpec javaFXJarSpec = new ExecTask.JavaFXJarSpec(JavaFXPlatform.LINUX);
+    private final List<File> classpath = new ArrayList<>();
+    private Path libDir;
+
+    @Setup
+    public void setup() throws IOException {
+        libDir = Files.createTempDirectory("lib");
+
+        for (JavaFXModule module : JavaFXModule.values()) {
+            classpath.add(Files.createFile(libDir.resolve(module.getArtifactName() + "-18.jar")).toFile());
+            classpath.add(Files.createFile(libDir.resolve(module.getArtifactName() + "-18-linux.jar")).toFile());
+        }
+
+        for (int i = 0; i < dependencies; ++i) {
+            classpath.add(Files.createFile(libDir.resolve("dependency" + i + "-1.0.jar")).toFile());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkHelper.deleteTree(libDir);
+    }
+
+    @Benchmark
+    public int filterClasspath() {
+        int count = 0;
+
+        for (File file : classpath) {
+            if (nonJavaFXJarSpec.isSatisfiedBy(file)) {
+                ++count;
+            }
+
+            if (javaFXJarSpec.isSatisfiedBy(file)) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+}
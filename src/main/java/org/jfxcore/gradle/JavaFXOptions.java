@@ -52,6 +52,8 @@ public class JavaFXOptions {
     private String version;
     private String sdk;
     private String compiler;
+    private boolean reuseCompiler;
+    private boolean markupReports;
     private String configuration = "implementation";
     private String lastUpdatedConfiguration;
     private List<String> modules = new ArrayList<>();
@@ -103,6 +105,33 @@ public class JavaFXOptions {
         return compiler;
     }
 
+    /**
+     * Specifies whether the FXML compiler is kept loaded in the Gradle daemon between builds.
+     * This allows repeated builds to use an already warmed-up compiler, but keeps the files on the
+     * compile classpath open until the compiler is unloaded. This is disabled by default.
+     * @param reuseCompiler {@code true} to keep the compiler loaded between builds
+     */
+    public void setReuseCompiler(boolean reuseCompiler) {
+        this.reuseCompiler = reuseCompiler;
+    }
+
+    public boolean isReuseCompiler() {
+        return reuseCompiler;
+    }
+
+    /**
+     * Specifies whether markup errors are also written to JSON and SARIF reports
+     * in the build/reports/markup directory.
+     * @param markupReports {@code true} to write markup reports
+     */
+    public void setMarkupReports(boolean markupReports) {
+        this.markupReports = markupReports;
+    }
+
+    public boolean isMarkupReports() {
+        return markupReports;
+    }
+
     /** Set the configuration name for dependencies, e.g.
      * 'implementation', 'compileOnly' etc.
      * @param configuration The configuration name for dependencies
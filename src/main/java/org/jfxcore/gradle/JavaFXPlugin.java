@@ -31,21 +31,24 @@
 package org.jfxcore.gradle;
 
 import com.google.gradle.osdetector.OsDetectorPlugin;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
+import org.gradle.api.plugins.ApplicationPlugin;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
-import org.gradle.api.tasks.TaskCollection;
-import org.gradle.api.tasks.compile.GroovyCompile;
-import org.gradle.api.tasks.compile.JavaCompile;
-import org.gradle.api.tasks.scala.ScalaCompile;
+import org.gradle.api.tasks.TaskProvider;
 import org.javamodularity.moduleplugin.ModuleSystemPlugin;
 import org.jfxcore.gradle.compiler.CompilerService;
 import org.jfxcore.gradle.tasks.CompileMarkupTask;
 import org.jfxcore.gradle.tasks.ExecTask;
 import org.jfxcore.gradle.tasks.ProcessMarkupTask;
 import org.jfxcore.gradle.util.PathHelper;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 
 public class JavaFXPlugin implements Plugin<Project> {
@@ -55,9 +58,19 @@ public class JavaFXPlugin implements Plugin<Project> {
         project.getPlugins().apply(OsDetectorPlugin.class);
         project.getPlugins().apply(ModuleSystemPlugin.class);
 
-        project.getExtensions().create("javafx", JavaFXOptions.class, project);
+        var options = project.getExtensions().create("javafx", JavaFXOptions.class, project);
 
-        project.getTasks().create("configJavafxRun", ExecTask.class, project);
+        var configJavafxRun = project.getTasks().register("configJavafxRun", ExecTask.class, task -> {
+            task.getModules().set(project.provider(options::getModules));
+            task.getRunTaskFound().set(project.provider(
+                () -> project.getPluginManager().hasPlugin(ApplicationPlugin.APPLICATION_PLUGIN_NAME)));
+        });
+
+        project.getPluginManager().withPlugin(ApplicationPlugin.APPLICATION_PLUGIN_NAME, e -> {
+            var runTask = project.getTasks().named(ApplicationPlugin.TASK_RUN_NAME, JavaExec.class);
+            runTask.configure(task -> task.dependsOn(configJavafxRun));
+            project.afterEvaluate(p -> runTask.configure(task -> ExecTask.configureRunTask(p, task)));
+        });
 
         // Exclude OpenJFX module dependencies
         for (var configuration : project.getConfigurations()) {
@@ -67,54 +80,151 @@ public class JavaFXPlugin implements Plugin<Project> {
         }
 
         // For each source set, add the corresponding generated sources directory, so it can be
-        // picked up by the Java compiler.
+        // picked up by the Java compiler. The markup files of a source set are specified by its
+        // 'markup' source directory set, which by default contains the markup files in the resource
+        // directories of the source set, so that the Java and Kotlin source directories are not searched.
+        // This also applies to source sets that are added later.
         var pathHelper = new PathHelper(project);
-        for (SourceSet sourceSet : pathHelper.getSourceSets()) {
+        pathHelper.getSourceSets().configureEach(sourceSet -> {
             sourceSet.getJava().srcDir(pathHelper.getGeneratedSourcesDir(sourceSet));
-        }
 
-        // Configure parseMarkup to run before, and compileMarkup to run after the source code is compiled.
+            SourceDirectorySet markup = project.getObjects().sourceDirectorySet(
+                PathHelper.MARKUP_SOURCE_NAME, sourceSet.getName() + " markup source");
+            markup.srcDir(project.provider(() -> sourceSet.getResources().getSrcDirs()));
+            markup.getFilter().include(PathHelper.MARKUP_FILE_PATTERN);
+            sourceSet.getExtensions().add(SourceDirectorySet.class, PathHelper.MARKUP_SOURCE_NAME, markup);
+        });
+
+        // For each source set, configure processMarkup to run before, and compileMarkup to run after the
+        // source code is compiled. The markup tasks of a source set are only wired to the compile tasks
+        // of the same source set, so that unrelated source sets don't wait for each other.
+        // All tasks are registered lazily, and are only realized when they are part of the task graph.
         project.afterEvaluate(p -> {
-            var provider = createProvider(project);
-            Task processMarkup = project.getTasks().create("processMarkup",
-                ProcessMarkupTask.class, task -> task.getCompilerService().set(provider));
-            Task compileMarkup = project.getTasks().create("compileMarkup",
-                CompileMarkupTask.class, task -> task.getCompilerService().set(provider));
-
-            TaskCollection<JavaCompile> javaCompileTasks = project.getTasks().withType(JavaCompile.class);
-            TaskCollection<GroovyCompile> groovyCompileTasks = project.getTasks().withType(GroovyCompile.class);
-            TaskCollection<ScalaCompile> scalaCompileTasks = project.getTasks().withType(ScalaCompile.class);
-            TaskCollection<?> kotlinCompileTasks = null;
-
-            try {
-                var kotlinCompileClass = Class.forName("org.jetbrains.kotlin.gradle.tasks.KotlinCompile");
-                kotlinCompileTasks = project.getTasks().matching(kotlinCompileClass::isInstance);
-            } catch (ClassNotFoundException ignored) {
-            }
+            var processMarkup = project.getTasks().register("processMarkup");
+            var compileMarkup = project.getTasks().register("compileMarkup");
+            var compileTasks = new HashMap<String, TaskProvider<ProcessMarkupTask>>();
+
+            for (SourceSet sourceSet : pathHelper.getSourceSets()) {
+                String sourceSetName = capitalize(sourceSet.getName());
+                SourceDirectorySet markupSource = pathHelper.getMarkupSource(sourceSet);
 
-            for (TaskCollection<?> collection : new TaskCollection[] {
-                    javaCompileTasks, groovyCompileTasks, scalaCompileTasks, kotlinCompileTasks}) {
-                if (collection != null) {
-                    for (Task task : collection) {
-                        task.dependsOn(processMarkup);
-                        task.finalizedBy(compileMarkup);
-                        compileMarkup.dependsOn(task);
+                var provider = createProvider(project, sourceSet);
+
+                var processSourceSetMarkup = project.getTasks().register(
+                        "process" + sourceSetName + "Markup", ProcessMarkupTask.class, task -> {
+                    task.getCompilerService().set(provider);
+                    task.usesService(provider);
+                    task.getMarkupFiles().from(markupSource);
+                    task.getMarkupSourceDirs().from(markupSource.getSourceDirectories());
+                    task.getCompileClasspath().from(sourceSet.getCompileClasspath());
+                    task.getGeneratedSourcesDir().set(pathHelper.getGeneratedSourcesDir(sourceSet));
+                    task.getManifestFile().set(pathHelper.getMarkupManifestFile(sourceSet));
+                    task.getDependencyIndexFile().set(pathHelper.getMarkupDependencyIndexFile(sourceSet));
+                    task.getModelsDir().set(pathHelper.getMarkupModelsDir(sourceSet));
+
+                    if (options.getCompiler() != null && !options.getCompiler().isEmpty()) {
+                        task.getCompilerJar().set(project.file(options.getCompiler()));
+                    }
+
+                    if (options.isMarkupReports()) {
+                        task.getReportsDir().set(pathHelper.getMarkupReportsDir());
+                        task.getTimingsFile().set(pathHelper.getMarkupTimingsFile(task.getName()));
                     }
+                });
+
+                // compileMarkup copies the output of the Java compiler into its own output directory and
+                // compiles the markup classes there. This directory replaces the output directory of the
+                // Java compiler in the source set output, so it is picked up by all consumers of the classes.
+                var compileSourceSetMarkup = project.getTasks().register(
+                        "compile" + sourceSetName + "Markup", CompileMarkupTask.class, task -> {
+                    var processTask = processSourceSetMarkup.get();
+                    task.getCompilerService().set(provider);
+                    task.usesService(provider);
+                    task.getMarkupFiles().from(processTask.getMarkupFiles());
+                    task.getMarkupSourceDirs().from(markupSource.getSourceDirectories());
+                    task.getGeneratedSources().from(processTask.getGeneratedSourcesDir());
+                    task.getManifestFile().from(processTask.getManifestFile());
+                    task.getModelsDir().set(processTask.getModelsDir());
+                    task.getClassesDir().set(sourceSet.getJava().getClassesDirectory());
+                    task.getCompileClasspath().from(sourceSet.getCompileClasspath());
+                    task.getCompilerJar().set(processTask.getCompilerJar());
+                    task.getDestinationDir().set(pathHelper.getMarkupClassesDir(sourceSet));
+                    task.getReportsDir().set(processTask.getReportsDir());
+
+                    if (options.isMarkupReports()) {
+                        task.getTimingsFile().set(pathHelper.getMarkupTimingsFile(task.getName()));
+                    }
+                });
+
+                replaceClassesDir(sourceSet, compileSourceSetMarkup.flatMap(CompileMarkupTask::getDestinationDir));
+
+                for (String language : new String[] {"java", "groovy", "scala", "kotlin"}) {
+                    compileTasks.put(sourceSet.getCompileTaskName(language), processSourceSetMarkup);
                 }
+
+                project.getTasks().named(sourceSet.getClassesTaskName())
+                    .configure(task -> task.dependsOn(compileSourceSetMarkup));
+                processMarkup.configure(task -> task.dependsOn(processSourceSetMarkup));
+                compileMarkup.configure(task -> task.dependsOn(compileSourceSetMarkup));
             }
+
+            // The compile tasks are matched by name when they are realized, so that they are not
+            // realized only for the purpose of adding the dependency.
+            project.getTasks().configureEach(task -> {
+                var processSourceSetMarkup = compileTasks.get(task.getName());
+                if (processSourceSetMarkup != null) {
+                    task.dependsOn(processSourceSetMarkup);
+                }
+            });
         });
     }
 
+    /**
+     * Replaces the output directory of the Java compiler with the output directory of compileMarkup
+     * in the classes directories of the source set. If the directory cannot be found, the build fails,
+     * as consumers of the source set would otherwise silently use classes without compiled markup.
+     */
+    private static void replaceClassesDir(SourceSet sourceSet, Provider<?> markupClassesDir) {
+        var javaClassesDir = sourceSet.getJava().getDestinationDirectory();
+        var classesDirs = (ConfigurableFileCollection)sourceSet.getOutput().getClassesDirs();
+        var paths = new ArrayList<>(classesDirs.getFrom());
+        int replaced = 0;
+
+        for (int i = 0; i < paths.size(); ++i) {
+            if (paths.get(i) == javaClassesDir) {
+                paths.set(i, markupClassesDir);
+                ++replaced;
+            }
+        }
+
+        if (replaced != 1) {
+            throw new GradleException(String.format(
+                "Cannot find the Java classes directory in the output of source set '%s'", sourceSet.getName()));
+        }
+
+        classesDirs.setFrom(paths);
+    }
+
+    private static String capitalize(String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Registers the compiler service of a source set. The compile classpath is only resolved
+     * when the service is first used by a markup task.
+     */
     @SuppressWarnings("UnstableApiUsage")
-    private Provider<CompilerService> createProvider(Project project) {
+    private Provider<CompilerService> createProvider(Project project, SourceSet sourceSet) {
         var options = (JavaFXOptions)project.getExtensions().findByName("javafx");
+        String name = "compilerService:" + project.getPath() + ":" + sourceSet.getName();
 
         return project.getGradle().getSharedServices()
-            .registerIfAbsent("compilerService:" + project.getName(), CompilerService.class, spec -> {
-                spec.getParameters().getCompileClasspath().set(new PathHelper(project).getCompileClasspath());
+            .registerIfAbsent(name, CompilerService.class, spec -> {
+                spec.getParameters().getCompileClasspath().from(sourceSet.getCompileClasspath());
+                spec.getParameters().getReuseCompiler().set(options != null && options.isReuseCompiler());
 
                 if (options != null && options.getCompiler() != null && !options.getCompiler().isEmpty()) {
-                    spec.getParameters().getCompilerJar().set(options.getCompiler());
+                    spec.getParameters().getCompilerJar().set(project.file(options.getCompiler()).getAbsolutePath());
                 }
             });
     }
@@ -30,82 +30,225 @@
 package org.jfxcore.gradle.compiler;
 
 import org.gradle.api.logging.Logger;
+import org.jfxcore.gradle.compiler.spi.MarkupCompiler;
+import org.jfxcore.gradle.compiler.spi.MarkupCompilerListener;
+import org.jfxcore.gradle.compiler.spi.MarkupCompilerProvider;
 import java.io.File;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class Compiler {
 
     public static final String COMPILER_NAME = "org.jfxcore.compiler.Compiler";
     private static final String LOGGER_NAME = "org.jfxcore.compiler.Logger";
 
-    private final Object compilerInstance;
-    private final Method parseFilesMethod;
-    private final Method generateSourcesMethod;
-    private final Method compileFilesMethod;
+    private final MarkupCompiler compiler;
 
     public Compiler(Logger logger, Set<File> classpath, ClassLoader classLoader) throws Exception {
-        Class<?> compilerLoggerClass = Class.forName(LOGGER_NAME, true, classLoader);
-
-        Object compilerLogger = Proxy.newProxyInstance(
-            compilerLoggerClass.getClassLoader(),
-            new Class[] {compilerLoggerClass},
-            new InvocationHandler() {
-                @Override
-                public Object invoke(Object proxy, Method method, Object[] args)
-                        throws InvocationTargetException, IllegalAccessException {
-                    switch (method.getName()) {
-                        case "debug":
-                            logger.debug((String)args[0]);
-                            return null;
-
-                        case "info":
-                            logger.lifecycle((String)args[0]);
-                            return null;
-
-                        case "error":
-                            logger.error((String)args[0]);
-                            return null;
-                    }
+        this(logger, classpath, classLoader, null);
+    }
 
-                    return method.invoke(proxy, args);
-                }
-            });
+    public Compiler(Logger logger, Set<File> classpath, ClassLoader classLoader,
+                    Consumer<File> fileProcessed) throws Exception {
+        MarkupCompilerListener listener = new MarkupCompilerListener() {
+            @Override
+            public void debug(String message) {
+                logger.debug(message);
+            }
 
-        compilerInstance = Class.forName(COMPILER_NAME, true, classLoader)
-            .getConstructor(Set.class, compilerLoggerClass)
-            .newInstance(classpath, compilerLogger);
+            @Override
+            public void info(String message) {
+                logger.lifecycle(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logger.error(message);
+            }
+
+            @Override
+            public void fileProcessed(File file) {
+                if (fileProcessed != null) {
+                    fileProcessed.accept(file);
+                }
+            }
+        };
 
-        parseFilesMethod = compilerInstance.getClass().getMethod("parseFiles", File.class);
-        generateSourcesMethod = compilerInstance.getClass().getMethod("generateSources", File.class);
-        compileFilesMethod = compilerInstance.getClass().getMethod("compileFiles");
+        MarkupCompilerProvider provider = findProvider(classLoader);
+        compiler = provider != null
+            ? provider.create(classpath, listener)
+            : new LegacyCompiler(listener, classpath, classLoader);
     }
 
     public void parseFiles(File sourceDir) throws Throwable {
-        try {
-            parseFilesMethod.invoke(compilerInstance, sourceDir);
-        } catch (InvocationTargetException ex) {
-            throw ex.getCause();
+        compiler.parseFiles(sourceDir);
+    }
+
+    /**
+     * Parses the specified markup files, keyed by their paths relative to their source directories.
+     * If the compiler doesn't support parsing individual files, it parses all markup files in the
+     * source directories that contain the specified files.
+     */
+    public void parseFiles(Map<String, File> markupFiles) throws Throwable {
+        Map<File, List<File>> filesBySourceDir = new LinkedHashMap<>();
+
+        for (var entry : markupFiles.entrySet()) {
+            Path sourceDir = entry.getValue().toPath();
+            for (int i = entry.getKey().split("/").length; i > 0; --i) {
+                sourceDir = sourceDir.getParent();
+            }
+
+            filesBySourceDir.computeIfAbsent(sourceDir.toFile(), key -> new ArrayList<>()).add(entry.getValue());
+        }
+
+        for (var entry : filesBySourceDir.entrySet()) {
+            if (!compiler.parseFiles(entry.getKey(), entry.getValue())) {
+                compiler.parseFiles(entry.getKey());
+            }
         }
     }
 
     public void generateSources(File generatedSourcesDir) throws Throwable {
-        try {
-            generateSourcesMethod.invoke(compilerInstance, generatedSourcesDir);
-        } catch (InvocationTargetException ex) {
-            throw ex.getCause();
-        }
+        compiler.generateSources(generatedSourcesDir);
     }
 
     public void compileFiles() throws Throwable {
-        try {
-            compileFilesMethod.invoke(compilerInstance);
-        } catch (InvocationTargetException ex) {
-            throw ex.getCause();
+        compiler.compileFiles();
+    }
+
+    public boolean saveModel(File sourceFile, File modelFile) throws Throwable {
+        return compiler.saveModel(sourceFile, modelFile);
+    }
+
+    public boolean loadModel(File sourceFile, File modelFile) throws Throwable {
+        return compiler.loadModel(sourceFile, modelFile);
+    }
+
+    /**
+     * Returns the SPI provider of the compiler, or {@code null} if the compiler doesn't provide
+     * a compatible implementation of the SPI.
+     */
+    private static MarkupCompilerProvider findProvider(ClassLoader classLoader) {
+        for (MarkupCompilerProvider provider : ServiceLoader.load(MarkupCompilerProvider.class, classLoader)) {
+            if (provider.getVersion() == MarkupCompilerProvider.VERSION) {
+                return provider;
+            }
         }
+
+        return null;
     }
 
+    /**
+     * Bridges compiler versions that don't implement the SPI.
+     */
+    private static class LegacyCompiler implements MarkupCompiler {
+        private final MethodHandle parseFilesMethod;
+        private final MethodHandle generateSourcesMethod;
+        private final MethodHandle compileFilesMethod;
+
+        LegacyCompiler(MarkupCompilerListener listener, Set<File> classpath, ClassLoader classLoader)
+                throws Exception {
+            Class<?> compilerLoggerClass = Class.forName(LOGGER_NAME, true, classLoader);
+            Class<?> compilerClass = Class.forName(COMPILER_NAME, true, classLoader);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            // The compiler's logger interface has the same methods as MarkupCompilerListener, so every
+            // call is forwarded to the corresponding method of the listener. Methods that have no
+            // counterpart in the listener (for example, methods added in a newer compiler) are ignored.
+            Map<Method, Method> listenerMethods = new HashMap<>();
+            for (Method method : compilerLoggerClass.getMethods()) {
+                try {
+                    listenerMethods.put(method, MarkupCompilerListener.class.getMethod(
+                        method.getName(), method.getParameterTypes()));
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+
+            Object compilerLogger = Proxy.newProxyInstance(
+                compilerLoggerClass.getClassLoader(),
+                new Class[] {compilerLoggerClass},
+                (proxy, method, args) -> {
+                    Method listenerMethod = listenerMethods.get(method);
+                    if (listenerMethod != null) {
+                        return listenerMethod.invoke(listener, args);
+                    }
+
+                    return switch (method.getName()) {
+                        case "equals" -> args != null && args.length == 1 && proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "toString" -> compilerLoggerClass.getName() + "@" + listener;
+                        default -> method.getReturnType().isPrimitive() && method.getReturnType() != void.class
+                            ? MethodHandles.zero(method.getReturnType()).invoke()
+                            : null;
+                    };
+                });
+
+            try {
+                Object compilerInstance = lookup
+                    .findConstructor(compilerClass, MethodType.methodType(void.class, Set.class, compilerLoggerClass))
+                    .invoke(classpath, compilerLogger);
+
+                parseFilesMethod = lookup
+                    .findVirtual(compilerClass, "parseFiles", MethodType.methodType(void.class, File.class))
+                    .bindTo(compilerInstance);
+
+                generateSourcesMethod = lookup
+                    .findVirtual(compilerClass, "generateSources", MethodType.methodType(void.class, File.class))
+                    .bindTo(compilerInstance);
+
+                compileFilesMethod = lookup
+                    .findVirtual(compilerClass, "compileFiles", MethodType.methodType(void.class))
+                    .bindTo(compilerInstance);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        }
+
+        @Override
+        public void parseFiles(File sourceDir) throws Exception {
+            try {
+                parseFilesMethod.invokeExact(sourceDir);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        }
+
+        @Override
+        public void generateSources(File generatedSourcesDir) throws Exception {
+            try {
+                generateSourcesMethod.invokeExact(generatedSourcesDir);
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        }
+
+        @Override
+        public void compileFiles() throws Exception {
+            try {
+                compileFilesMethod.invokeExact();
+            } catch (Throwable ex) {
+                throw rethrow(ex);
+            }
+        }
+
+        private static Exception rethrow(Throwable ex) {
+            if (ex instanceof Error error) {
+                throw error;
+            }
+
+            return ex instanceof Exception exception ? exception : new RuntimeException(ex);
+        }
+    }
 }
@@ -30,47 +30,100 @@
 package org.jfxcore.gradle.compiler;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.security.CodeSource;
 import java.util.Enumeration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Loads the FXML compiler together with the compile classpath of a project.
+ * <p>
+ * Classes in {@link #SHARED_PACKAGES} are delegated to the parent classloader first. All other classes are
+ * defined by this classloader, so that they resolve their dependencies against the compile classpath.
+ * If such a class is only available in the parent classloader (for example, the compiler classes that
+ * are a dependency of this plugin), the jar file or directory that contains the class is added to the
+ * classpath of this classloader.
+ */
 class CompilerClassLoader extends URLClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * The SPI interfaces must be the same classes in the plugin and the compiler. JDK classes are not
+     * listed here, since this classloader asks the bootstrap classloader before searching its own URLs.
+     */
+    private static final String[] SHARED_PACKAGES = {
+        "org.jfxcore.gradle.compiler.spi."
+    };
+
     private final ClassLoaderWrapper parent;
+    private final Set<String> parentCodeSources = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger definedClasses = new AtomicInteger();
+    private final AtomicInteger delegatedClasses = new AtomicInteger();
 
     public CompilerClassLoader(URL[] urls, ClassLoader parent) {
         super(urls, null);
         this.parent = new ClassLoaderWrapper(parent);
     }
 
+    /**
+     * Returns the number of classes that were defined by this classloader.
+     */
+    public int getDefinedClassCount() {
+        return definedClasses.get();
+    }
+
+    /**
+     * Returns the number of classes that were delegated to the parent classloader.
+     */
+    public int getDelegatedClassCount() {
+        return delegatedClasses.get();
+    }
+
     @Override
-    public Class<?> findClass(String name) throws ClassNotFoundException {
-        try {
-            return super.findClass(name);
-        } catch (ClassNotFoundException ex) {
-            return parent.findClass(name);
-        }
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        Class<?> clazz = super.findClass(name);
+        definedClasses.incrementAndGet();
+        return clazz;
     }
 
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        try {
-            return super.loadClass(name, resolve);
-        } catch (ClassNotFoundException ex) {
-            String classFileName = name.replace('.', '/') + ".class";
-
-            try (InputStream stream = parent.getResourceAsStream(classFileName)) {
-                if (stream != null) {
-                    byte[] data = stream.readAllBytes();
-                    Class<?> clazz = defineClass(name, data, 0, data.length, (CodeSource)null);
-                    resolveClass(clazz);
-                    return clazz;
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+
+            if (clazz == null) {
+                if (isSharedClass(name)) {
+                    try {
+                        clazz = parent.loadClass(name, false);
+                        delegatedClasses.incrementAndGet();
+                    } catch (ClassNotFoundException ex) {
+                        clazz = super.loadClass(name, false);
+                    }
+                } else {
+                    try {
+                        clazz = super.loadClass(name, false);
+                    } catch (ClassNotFoundException ex) {
+                        clazz = addParentCodeSource(name) ? findClassOrNull(name) : null;
+                    }
+
+                    if (clazz == null) {
+                        clazz = parent.loadClass(name, false);
+                        delegatedClasses.incrementAndGet();
+                    }
                 }
-            } catch (IOException ignored) {
             }
 
-            return parent.loadClass(name, resolve);
+            if (resolve) {
+                resolveClass(clazz);
+            }
+
+            return clazz;
         }
     }
 
@@ -94,14 +147,68 @@ class CompilerClassLoader extends URLClassLoader {
         return parent.getResources(name);
     }
 
+    private Class<?> findClassOrNull(String name) {
+        try {
+            return findClass(name);
+        } catch (ClassNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static boolean isSharedClass(String name) {
+        for (String sharedPackage : SHARED_PACKAGES) {
+            if (name.startsWith(sharedPackage)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds the jar file or directory from which the parent classloader would load the specified class
+     * to the classpath of this classloader.
+     *
+     * @return {@code true} if the jar file or directory is on the classpath, {@code false} otherwise
+     */
+    private boolean addParentCodeSource(String name) {
+        String classFileName = name.replace('.', '/') + ".class";
+        URL resource = parent.getResource(classFileName);
+        if (resource == null) {
+            return false;
+        }
+
+        String location = resource.toString();
+        String codeSource;
+
+        if (location.startsWith("jar:") && location.contains("!/")) {
+            codeSource = location.substring("jar:".length(), location.indexOf("!/"));
+        } else if (location.startsWith("file:") && location.endsWith(classFileName)) {
+            codeSource = location.substring(0, location.length() - classFileName.length());
+        } else {
+            return false;
+        }
+
+        if (!parentCodeSources.add(codeSource)) {
+            return true;
+        }
+
+        try {
+            addURL(new URL(codeSource));
+            return true;
+        } catch (MalformedURLException ex) {
+            parentCodeSources.remove(codeSource);
+            return false;
+        }
+    }
+
     private static class ClassLoaderWrapper extends ClassLoader {
-        ClassLoaderWrapper(ClassLoader classLoader) {
-            super(classLoader);
+        static {
+            registerAsParallelCapable();
         }
 
-        @Override
-        public Class<?> findClass(String name) throws ClassNotFoundException {
-            return super.findClass(name);
+        ClassLoaderWrapper(ClassLoader classLoader) {
+            super(classLoader);
         }
 
         @Override
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.compiler;
+
+import org.jfxcore.gradle.util.PathHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares compiler classloaders between all projects that use the same compiler jar and compile
+ * classpath, and optionally keeps them alive for the lifetime of the Gradle daemon, so that repeated
+ * builds can reuse the loaded and JIT-compiled classes of the FXML compiler.
+ * <p>
+ * Classloaders are keyed by a fingerprint of the set of files on their classpath, and are reference
+ * counted. Within a single build, the files on the classpath don't change, so the fingerprint only covers
+ * their canonical paths. Classloaders that are kept between builds are also keyed by the sizes and
+ * modification times of the files, so that a classloader isn't reused after its classpath has changed. A classloader that is no longer referenced is either closed immediately, or retained until
+ * more than {@link #MAX_IDLE_CLASSLOADERS} unreferenced classloaders exist, in which case the least
+ * recently used one is closed.
+ */
+final class CompilerClassLoaderCache {
+
+    private static final int MAX_IDLE_CLASSLOADERS = 4;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Entry {
+        final CompilerClassLoader classLoader;
+        int refCount;
+
+        Entry(CompilerClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+    }
+
+    private CompilerClassLoaderCache() {}
+
+    /**
+     * Returns a classloader for the specified set of files, and increments its reference count.
+     *
+     * @param retain {@code true} if the classloader may be kept between builds
+     */
+    public static CompilerClassLoader acquire(
+            List<File> files, boolean retain, Supplier<CompilerClassLoader> factory) throws IOException {
+        // Computing the fingerprint of a retained classloader walks all class directories on the classpath,
+        // so it is done before acquiring the lock to not block other projects that are acquiring a classloader.
+        String fingerprint = fingerprint(files, retain);
+
+        synchronized (CompilerClassLoaderCache.class) {
+            Entry entry = entries.computeIfAbsent(fingerprint, key -> new Entry(factory.get()));
+            entry.refCount++;
+            return entry.classLoader;
+        }
+    }
+
+    /**
+     * Decrements the reference count of the specified classloader. If {@code retain} is {@code false},
+     * an unreferenced classloader is closed immediately.
+     */
+    public static synchronized void release(CompilerClassLoader classLoader, boolean retain) throws IOException {
+        List<CompilerClassLoader> evicted = new ArrayList<>();
+        int idleCount = 0;
+
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.classLoader == classLoader && --entry.refCount == 0 && !retain) {
+                it.remove();
+                evicted.add(entry.classLoader);
+            } else if (entry.refCount == 0) {
+                idleCount++;
+            }
+        }
+
+        // Entries are iterated from the least recently used to the most recently used.
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && idleCount > MAX_IDLE_CLASSLOADERS; ) {
+            Entry entry = it.next();
+            if (entry.refCount == 0) {
+                it.remove();
+                evicted.add(entry.classLoader);
+                idleCount--;
+            }
+        }
+
+        for (CompilerClassLoader evictedClassLoader : evicted) {
+            evictedClassLoader.close();
+        }
+    }
+
+    /**
+     * Computes a fingerprint from the canonical paths of the specified files, independent of their order.
+     * If {@code modifications} is {@code true}, the sizes and modification times of the files are included
+     * as well. Directories are represented by the number of files they contain and the most recent
+     * modification time of these files.
+     */
+    private static String fingerprint(List<File> files, boolean modifications) throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex);
+        }
+
+        var paths = new TreeSet<Path>();
+        for (File file : files) {
+            paths.add(file.getCanonicalFile().toPath());
+        }
+
+        if (!modifications) {
+            for (Path path : paths) {
+                digest.update((path + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        for (Path path : paths) {
+            long size = 0;
+            long lastModified = 0;
+
+            if (Files.isDirectory(path)) {
+                var fileCount = new LongAdder();
+                var maxLastModified = new LongAccumulator(Math::max, 0);
+
+                PathHelper.visitFiles(path, true, (file, attributes) -> {
+                    maxLastModified.accumulate(attributes.lastModifiedTime().toMillis());
+                    fileCount.increment();
+                });
+
+                size = fileCount.sum();
+                lastModified = maxLastModified.get();
+            } else if (Files.exists(path)) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                lastModified = attributes.lastModifiedTime().toMillis();
+                size = attributes.size();
+            }
+
+            digest.update((path + "\t" + size + '\t' + lastModified + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.compiler;
+
+import org.gradle.api.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.jfxcore.gradle.util.JsonHelper.quote;
+
+/**
+ * Collects timings and counters of a markup task. Metrics can be recorded concurrently
+ * by all work items of the task.
+ */
+public final class CompilerMetrics {
+
+    private static final int SLOWEST_FILE_COUNT = 10;
+
+    private final Map<String, Timer> phases = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<File, Long> fileTimes = new ConcurrentHashMap<>();
+
+    private static final class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Throwable;
+    }
+
+    /**
+     * Records the time between the notifications of a compiler for the markup files that it has processed.
+     * Only compilers that implement the compiler SPI send these notifications; for other compilers, no
+     * per-file times are recorded.
+     */
+    public final class FileTimer implements Consumer<File> {
+        private long lastTime = System.nanoTime();
+
+        private FileTimer() {}
+
+        /**
+         * Starts measuring the time for the next file.
+         */
+        public void reset() {
+            lastTime = System.nanoTime();
+        }
+
+        @Override
+        public void accept(File file) {
+            long time = System.nanoTime();
+            recordFile(file, time - lastTime);
+            lastTime = time;
+        }
+    }
+
+    /**
+     * Records the duration of a phase, for example parsing or source generation.
+     */
+    public void record(String phase, long nanos) {
+        Timer timer = phases.computeIfAbsent(phase, key -> new Timer());
+        timer.count.increment();
+        timer.nanos.add(nanos);
+    }
+
+    /**
+     * Runs the action and records its duration for the specified phase.
+     */
+    public void time(String phase, Action action) throws Throwable {
+        long startTime = System.nanoTime();
+
+        try {
+            action.run();
+        } finally {
+            record(phase, System.nanoTime() - startTime);
+        }
+    }
+
+    public FileTimer newFileTimer() {
+        return new FileTimer();
+    }
+
+    /**
+     * Records the time that was spent processing the specified markup file.
+     */
+    public void recordFile(File file, long nanos) {
+        fileTimes.merge(file, nanos, Long::sum);
+    }
+
+    public void increment(String counter, long value) {
+        counters.computeIfAbsent(counter, key -> new LongAdder()).add(value);
+    }
+
+    /**
+     * Logs a summary of the metrics at info level, and writes all metrics to the specified JSON file.
+     */
+    public void report(Logger logger, String taskPath, Path file) {
+        logSummary(logger, taskPath);
+
+        if (file != null) {
+            try {
+                writeJson(file);
+            } catch (IOException ex) {
+                logger.warn("Cannot write " + file, ex);
+            }
+        }
+    }
+
+    public void logSummary(Logger logger, String taskPath) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+
+        var builder = new StringBuilder("Markup metrics for ").append(taskPath).append(':');
+        phases.forEach((phase, timer) -> builder.append(String.format(
+            "%n  %s: %d ms (%d)", phase, timer.nanos.sum() / 1_000_000, timer.count.sum())));
+        counters.forEach((counter, value) -> builder.append(String.format("%n  %s: %d", counter, value.sum())));
+
+        for (var entry : getSlowestFiles()) {
+            builder.append(String.format("%n  %s: %d ms", entry.getKey(), entry.getValue() / 1_000_000));
+        }
+
+        logger.info(builder.toString());
+    }
+
+    public void writeJson(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"phases\": {");
+            String separator = "\n";
+            for (var entry : phases.entrySet()) {
+                writer.write(separator + "    " + quote(entry.getKey()) + ": {\"count\": " + entry.getValue().count.sum()
+                    + ", \"millis\": " + entry.getValue().nanos.sum() / 1_000_000 + "}");
+                separator = ",\n";
+            }
+
+            writer.write(phases.isEmpty() ? "},\n  \"counters\": {" : "\n  },\n  \"counters\": {");
+            separator = "\n";
+            for (var entry : counters.entrySet()) {
+                writer.write(separator + "    " + quote(entry.getKey()) + ": " + entry.getValue().sum());
+                separator = ",\n";
+            }
+
+            writer.write(counters.isEmpty() ? "},\n  \"files\": [" : "\n  },\n  \"files\": [");
+            separator = "\n";
+            List<Map.Entry<File, Long>> files = getFilesByTime();
+            for (var entry : files) {
+                writer.write(separator + "    {\"file\": " + quote(entry.getKey().getPath())
+                    + ", \"millis\": " + entry.getValue() / 1_000_000 + "}");
+                separator = ",\n";
+            }
+
+            writer.write(files.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        }
+    }
+
+    private List<Map.Entry<File, Long>> getSlowestFiles() {
+        List<Map.Entry<File, Long>> files = getFilesByTime();
+        return files.subList(0, Math.min(SLOWEST_FILE_COUNT, files.size()));
+    }
+
+    private List<Map.Entry<File, Long>> getFilesByTime() {
+        List<Map.Entry<File, Long>> files = new ArrayList<>(fileTimes.entrySet());
+        files.sort(Map.Entry.<File, Long>comparingByValue().reversed());
+        return files;
+    }
+
+}
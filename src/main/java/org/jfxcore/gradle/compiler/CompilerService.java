@@ -30,47 +30,60 @@
 package org.jfxcore.gradle.compiler;
 
 import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.provider.Property;
-import org.gradle.api.provider.SetProperty;
 import org.gradle.api.services.BuildService;
 import org.gradle.api.services.BuildServiceParameters;
-import org.gradle.api.tasks.SourceSet;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Provides the compiler for the markup tasks of a source set. The service is registered by name for each
+ * source set of a project, and creates a new compiler for every use, so that the markup tasks don't depend
+ * on any state that was created by another task, and can run in parallel or in separate builds.
+ * All compilers of the service share the same classloader.
+ */
 @SuppressWarnings("UnstableApiUsage")
 public abstract class CompilerService implements BuildService<CompilerService.Params>, AutoCloseable {
 
     public interface Params extends BuildServiceParameters {
         Property<String> getCompilerJar();
-        SetProperty<File> getCompileClasspath();
+        ConfigurableFileCollection getCompileClasspath();
+        Property<Boolean> getReuseCompiler();
     }
 
-    private final Set<File> compileClasspath;
     private final CompilerClassLoader classLoader;
     private final ExceptionHelper exceptionHelper;
-    private final Map<SourceSet, Compiler> compilers = new IdentityHashMap<>();
+    private final boolean reuseCompiler;
+    private final Map<String, CompilerMetrics> metrics = new ConcurrentHashMap<>();
+    private final AtomicLong initNanos = new AtomicLong();
 
-    public CompilerService() throws MalformedURLException {
-        compileClasspath = getParameters().getCompileClasspath().getOrElse(Collections.emptySet());
+    public CompilerService() throws IOException {
+        long startTime = System.nanoTime();
+        Set<File> compileClasspath = getParameters().getCompileClasspath().getFiles();
         String compilerJar = getParameters().getCompilerJar().getOrNull();
+        List<File> files = new ArrayList<>();
         List<URL> urls = new ArrayList<>();
 
         if (compilerJar != null && !compilerJar.isEmpty()) {
+            files.add(new File(compilerJar));
             urls.add(new URL("file", null, compilerJar));
         }
 
+        files.addAll(compileClasspath);
+
         urls.addAll(compileClasspath.stream().map(file -> {
             try {
                 return new URL("file", null, file.getCanonicalPath());
@@ -79,29 +92,63 @@ public abstract class CompilerService implements BuildService<CompilerService.Pa
             }
         }).filter(Objects::nonNull).toList());
 
-        classLoader = new CompilerClassLoader(urls.toArray(URL[]::new), getClass().getClassLoader());
-        checkDependencies(classLoader);
+        // The classloader is shared by all projects with the same compiler jar and compile classpath.
+        // If enabled, it is also kept alive across builds, which allows the compiler to skip class
+        // loading and JIT warm-up when the same project is built again.
+        reuseCompiler = getParameters().getReuseCompiler().getOrElse(false);
+        ClassLoader parent = getClass().getClassLoader();
+        classLoader = CompilerClassLoaderCache.acquire(
+            files, reuseCompiler, () -> new CompilerClassLoader(urls.toArray(URL[]::new), parent));
+
+        try {
+            checkDependencies(classLoader);
+        } catch (RuntimeException ex) {
+            CompilerClassLoaderCache.release(classLoader, false);
+            throw ex;
+        }
 
         exceptionHelper = new ExceptionHelper(classLoader);
+        initNanos.set(System.nanoTime() - startTime);
     }
 
     @Override
     public void close() throws Exception {
-        classLoader.close();
+        Logging.getLogger(CompilerService.class).info(
+            "FXML compiler classloader: {} classes defined, {} classes delegated to the plugin classloader",
+            classLoader.getDefinedClassCount(), classLoader.getDelegatedClassCount());
+
+        CompilerClassLoaderCache.release(classLoader, reuseCompiler);
     }
 
     public ExceptionHelper getExceptionHelper() {
         return exceptionHelper;
     }
 
-    public Compiler newCompiler(SourceSet sourceSet, Logger logger) throws Exception {
-        Compiler instance = new Compiler(logger, compileClasspath, classLoader);
-        compilers.put(sourceSet, instance);
-        return instance;
+    /**
+     * Creates a new compiler that invokes the callback when it has finished processing a markup file.
+     */
+    public Compiler newCompiler(Logger logger, Set<File> classpath, Consumer<File> fileProcessed) throws Exception {
+        return new Compiler(logger, classpath, classLoader, fileProcessed);
+    }
+
+    /**
+     * Returns the metrics with the specified key, which is usually the path of a task.
+     */
+    public CompilerMetrics getMetrics(String key) {
+        return metrics.computeIfAbsent(key, k -> new CompilerMetrics());
+    }
+
+    public CompilerMetrics removeMetrics(String key) {
+        CompilerMetrics removed = metrics.remove(key);
+        return removed != null ? removed : new CompilerMetrics();
     }
 
-    public Compiler getCompiler(SourceSet sourceSet) {
-        return compilers.get(sourceSet);
+    /**
+     * Returns the time that was spent to initialize this service, including the creation of the
+     * compiler classloader. The time is only returned to the first caller, and 0 to all other callers.
+     */
+    public long takeInitTime() {
+        return initNanos.getAndSet(0);
     }
 
     private static void checkDependencies(ClassLoader classLoader) {
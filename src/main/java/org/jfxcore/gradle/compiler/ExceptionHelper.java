@@ -31,18 +31,35 @@ package org.jfxcore.gradle.compiler;
 
 import java.io.File;
 
+import java.lang.reflect.Method;
+
 public class ExceptionHelper {
 
     private static final String CLASS_NAME = "org.jfxcore.compiler.diagnostic.MarkupException";
 
     private final Class<?> markupExceptionClass;
+    private final Method getSourceFileMethod;
+    private final Method getMessageWithSourceInfoMethod;
+    private final Method getSourceInfoMethod;
+    private final Method getStartMethod;
+    private final Method getLineMethod;
+    private final Method getColumnMethod;
 
     public ExceptionHelper(ClassLoader classLoader) {
         try {
             markupExceptionClass = Class.forName(CLASS_NAME, true, classLoader);
+            getSourceFileMethod = markupExceptionClass.getMethod("getSourceFile");
+            getMessageWithSourceInfoMethod = markupExceptionClass.getMethod("getMessageWithSourceInfo");
+            getSourceInfoMethod = markupExceptionClass.getMethod("getSourceInfo");
+            getStartMethod = getSourceInfoMethod.getReturnType().getMethod("getStart");
+            getLineMethod = getStartMethod.getReturnType().getMethod("getLine");
+            getColumnMethod = findMethod(getStartMethod.getReturnType(), "getColumn");
         } catch (ClassNotFoundException ex) {
             String message = "Class not found: " + ex.getMessage();
             throw new RuntimeException(message, ex);
+        } catch (NoSuchMethodException ex) {
+            String message = "Method not found: " + ex.getMessage();
+            throw new RuntimeException(message, ex);
         }
     }
 
@@ -50,17 +67,50 @@ public class ExceptionHelper {
         return markupExceptionClass.isInstance(ex);
     }
 
+    public File getSourceFile(RuntimeException ex) {
+        return (File)invoke(getSourceFileMethod, ex);
+    }
+
+    /**
+     * Returns the zero-based line number at which the error occurred.
+     */
+    public int getLine(RuntimeException ex) {
+        return (int)invoke(getLineMethod, getLocation(ex));
+    }
+
+    /**
+     * Returns the zero-based column number at which the error occurred,
+     * or -1 if the compiler doesn't provide the column number.
+     */
+    public int getColumn(RuntimeException ex) {
+        return getColumnMethod != null ? (int)invoke(getColumnMethod, getLocation(ex)) : -1;
+    }
+
     public String format(RuntimeException ex) {
+        File sourceFile = getSourceFile(ex);
+        String message = (String)invoke(getMessageWithSourceInfoMethod, ex);
+        int line = getLine(ex);
+
+        return String.format("%s:%s: %s", sourceFile != null ? sourceFile.toString() : "<null>", line + 1, message);
+    }
+
+    private Object getLocation(RuntimeException ex) {
+        return invoke(getStartMethod, invoke(getSourceInfoMethod, ex));
+    }
+
+    private static Object invoke(Method method, Object instance) {
+        try {
+            return method.invoke(instance);
+        } catch (ReflectiveOperationException ex) {
+            sneakyThrow(ex);
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name) {
         try {
-            File sourceFile = (File)ex.getClass().getMethod("getSourceFile").invoke(ex);
-            String message = (String)ex.getClass().getMethod("getMessageWithSourceInfo").invoke(ex);
-            Object sourceInfo = ex.getClass().getMethod("getSourceInfo").invoke(ex);
-            Object location = sourceInfo.getClass().getMethod("getStart").invoke(sourceInfo);
-            int line = (int)location.getClass().getMethod("getLine").invoke(location);
-
-            return String.format("%s:%s: %s", sourceFile != null ? sourceFile.toString() : "<null>", line + 1, message);
-        } catch (ReflectiveOperationException ex2) {
-            sneakyThrow(ex2);
+            return clazz.getMethod(name);
+        } catch (NoSuchMethodException ex) {
             return null;
         }
     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.compiler.spi;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Represents a compiler instance that processes a set of markup files.
+ */
+public interface MarkupCompiler {
+
+    /**
+     * Parses all markup files in the specified directory.
+     */
+    void parseFiles(File sourceDir) throws Exception;
+
+    /**
+     * Parses the specified markup files, which are located in the specified source directory. Other
+     * files in the source directory are not parsed.
+     *
+     * @param sourceDir the source directory that contains the markup files
+     * @param markupFiles the markup files
+     * @return {@code true} if the markup files were parsed, {@code false} if the compiler doesn't
+     *         support parsing individual markup files
+     */
+    default boolean parseFiles(File sourceDir, List<File> markupFiles) throws Exception {
+        return false;
+    }
+
+    /**
+     * Generates Java source files for the parsed markup files.
+     */
+    void generateSources(File generatedSourcesDir) throws Exception;
+
+    /**
+     * Compiles the markup classes of the parsed markup files.
+     */
+    void compileFiles() throws Exception;
+
+    /**
+     * Writes the parse result of a parsed markup file to the specified model file.
+     *
+     * @param sourceFile the markup file
+     * @param modelFile the model file
+     * @return {@code true} if the model file was written, {@code false} if the compiler
+     *         doesn't support persisting parse results
+     */
+    default boolean saveModel(File sourceFile, File modelFile) throws Exception {
+        return false;
+    }
+
+    /**
+     * Loads the parse result of a markup file from a model file that was written by {@link #saveModel},
+     * instead of parsing the markup file. The compiler may memory-map the model file.
+     *
+     * @param sourceFile the markup file
+     * @param modelFile the model file
+     * @return {@code true} if the parse result was loaded, {@code false} if the compiler doesn't support
+     *         persisting parse results, or if the model file is not compatible with this compiler
+     *         or its classpath
+     */
+    default boolean loadModel(File sourceFile, File modelFile) throws Exception {
+        return false;
+    }
+
+}
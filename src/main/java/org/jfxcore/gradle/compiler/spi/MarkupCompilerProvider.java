@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.compiler.spi;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Service provider interface that is implemented by the FXML compiler and discovered
+ * with {@link java.util.ServiceLoader}.
+ * <p>
+ * The types in this package are shared between the plugin and the compiler classloader.
+ * Changes to them must be backwards compatible; incompatible changes require a new {@link #VERSION}.
+ */
+public interface MarkupCompilerProvider {
+
+    /**
+     * The version of the SPI that is implemented by this plugin.
+     */
+    int VERSION = 1;
+
+    /**
+     * Returns the version of the SPI that is implemented by the provider.
+     */
+    int getVersion();
+
+    /**
+     * Creates a new compiler instance.
+     *
+     * @param classpath the compile classpath
+     * @param listener the listener that receives log messages and progress notifications
+     */
+    MarkupCompiler create(Set<File> classpath, MarkupCompilerListener listener);
+
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Computes the fingerprints of the types on a classpath, which are used to detect whether a type
+ * referenced by a markup file has changed.
+ * <p>
+ * The markup compiler can reach types through the members of a referenced type, for example through
+ * the return type of a getter, the type argument of a property, or a binding path. Since these types
+ * can't be determined from the markup file alone, the fingerprint of a class is derived from the
+ * CRC-32 checksums of all class files that are transitively referenced by its class file, which
+ * includes its supertypes, nested classes and the types of its members. For classes in jar files,
+ * the checksums are taken from the jar directory. The fingerprint of an on-demand import
+ * ({@code pkg.*}) covers all classes in the package. If a class is found in several classpath entries,
+ * the first one wins.
+ * <p>
+ * Fingerprints are computed lazily, so only the classpath entries that need to be searched for the
+ * requested types are read.
+ */
+final class ClasspathFingerprints implements Closeable {
+
+    static final String MISSING = "-";
+
+    /**
+     * The fingerprint of a type whose referenced classes can't be determined, because a class file
+     * has an unsupported format. A markup file that references such a type is always processed again.
+     */
+    static final String UNKNOWN = "?";
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+    private static final long MISSING_CHECKSUM = -1;
+    private static final Pattern DESCRIPTOR_TYPE_PATTERN = Pattern.compile("L([\\w/$]+)[;<]");
+
+    /**
+     * The checksum of a class file and the internal names of the classes that it references.
+     */
+    private record ClassInfo(long checksum, Set<String> referencedClasses) {}
+
+    private static final ClassInfo MISSING_CLASS = new ClassInfo(MISSING_CHECKSUM, Set.of());
+
+    private final List<File> classpath = new ArrayList<>();
+    private final Map<File, ZipFile> zipFiles = new HashMap<>();
+    private final Map<File, NavigableMap<String, Long>> jarChecksums = new HashMap<>();
+    private final Map<String, ClassInfo> classInfos = new HashMap<>();
+    private final Map<String, String> fingerprints = new HashMap<>();
+
+    public ClasspathFingerprints(Iterable<File> classpath) {
+        for (File entry : classpath) {
+            this.classpath.add(entry);
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the specified class or package, or {@link #MISSING} if the
+     * type doesn't exist on the classpath. Nested classes can be specified with their canonical
+     * name ({@code pkg.Outer.Inner}) or their binary name ({@code pkg.Outer$Inner}).
+     */
+    public String get(String type) throws IOException {
+        String fingerprint = fingerprints.get(type);
+        if (fingerprint == null) {
+            fingerprint = computeFingerprint(type);
+            fingerprints.put(type, fingerprint);
+        }
+
+        return fingerprint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ZipFile zipFile : zipFiles.values()) {
+            zipFile.close();
+        }
+
+        zipFiles.clear();
+    }
+
+    private String computeFingerprint(String type) throws IOException {
+        Set<String> classNames = new TreeSet<>();
+
+        if (type.endsWith(".*")) {
+            String packageName = type.substring(0, type.length() - 2);
+            classNames.addAll(findPackageClasses(packageName.replace('.', '/')));
+
+            // An on-demand import of a class (pkg.Outer.*) imports its nested classes, which are
+            // covered by the fingerprint of the class.
+            if (classNames.isEmpty()) {
+                return get(packageName);
+            }
+        } else {
+            String binaryName = findBinaryName(type.replace('.', '/'));
+            if (binaryName == null) {
+                return MISSING;
+            }
+
+            classNames.add(binaryName);
+        }
+
+        // Collects the checksums of all transitively referenced classes. Referenced classes that are not
+        // on the classpath are included as well, so that the fingerprint changes when they are added.
+        Map<String, Long> checksums = new TreeMap<>();
+        Deque<String> pending = new ArrayDeque<>(classNames);
+        Set<String> visited = new HashSet<>(classNames);
+
+        while (!pending.isEmpty()) {
+            String className = pending.poll();
+            ClassInfo classInfo = getClassInfo(className);
+            if (classInfo.referencedClasses() == null) {
+                return UNKNOWN;
+            }
+
+            checksums.put(className, classInfo.checksum());
+
+            for (String referencedClass : classInfo.referencedClasses()) {
+                // JDK classes are not on the compile classpath, and don't change during a build.
+                if (!referencedClass.startsWith("java/") && visited.add(referencedClass)) {
+                    pending.add(referencedClass);
+                }
+            }
+        }
+
+        return hash(checksums);
+    }
+
+    /**
+     * The binary name of a nested class separates it from its enclosing class with '$' instead
+     * of '/', so the segments of the name are replaced from the right until a class is found.
+     */
+    private String findBinaryName(String className) throws IOException {
+        for (int index = className.length(); index > 0; index = className.lastIndexOf('/', index - 1)) {
+            String binaryName = className.substring(0, index) + className.substring(index).replace('/', '$');
+            if (getClassInfo(binaryName) != MISSING_CLASS) {
+                return binaryName;
+            }
+        }
+
+        return null;
+    }
+
+    private static String hash(Map<String, Long> checksums) {
+        long hash = 17;
+        for (var entry : checksums.entrySet()) {
+            hash = hash * 31 + entry.getKey().hashCode();
+            hash = hash * 31 + entry.getValue();
+        }
+
+        return Long.toHexString(hash);
+    }
+
+    /**
+     * Returns the internal names of the classes of the specified package in the first classpath entry
+     * that contains the package.
+     */
+    private Set<String> findPackageClasses(String packagePath) throws IOException {
+        for (File entry : classpath) {
+            Set<String> classNames = new TreeSet<>();
+
+            if (entry.isDirectory()) {
+                Path packageDir = entry.toPath().resolve(packagePath);
+                if (Files.isDirectory(packageDir)) {
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(packageDir, "*.class")) {
+                        for (Path file : stream) {
+                            classNames.add(packagePath + "/" + file.getFileName().toString().replace(".class", ""));
+                        }
+                    }
+                }
+            } else if (entry.isFile()) {
+                String prefix = packagePath + "/";
+                for (String name : getJarChecksums(entry).subMap(prefix, true, prefix + Character.MAX_VALUE, true).keySet()) {
+                    if (name.indexOf('/', prefix.length()) < 0) {
+                        classNames.add(name.substring(0, name.length() - ".class".length()));
+                    }
+                }
+            }
+
+            if (!classNames.isEmpty()) {
+                return classNames;
+            }
+        }
+
+        return Set.of();
+    }
+
+    /**
+     * Returns the checksum and the referenced classes of the class file of the specified class in the
+     * first classpath entry that contains the class, or {@link #MISSING_CLASS} if it isn't found.
+     */
+    private ClassInfo getClassInfo(String binaryName) throws IOException {
+        ClassInfo classInfo = classInfos.get(binaryName);
+        if (classInfo != null) {
+            return classInfo;
+        }
+
+        classInfo = MISSING_CLASS;
+        String classFileName = binaryName + ".class";
+
+        for (File entry : classpath) {
+            if (entry.isDirectory()) {
+                Path classFile = entry.toPath().resolve(classFileName);
+                if (Files.isRegularFile(classFile)) {
+                    byte[] bytes = Files.readAllBytes(classFile);
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    classInfo = new ClassInfo(crc.getValue(), readReferencedClasses(bytes));
+                    break;
+                }
+            } else if (entry.isFile()) {
+                Long checksum = getJarChecksums(entry).get(classFileName);
+                if (checksum != null) {
+                    ZipFile zipFile = zipFiles.get(entry);
+                    try (InputStream stream = zipFile.getInputStream(zipFile.getEntry(classFileName))) {
+                        classInfo = new ClassInfo(checksum, readReferencedClasses(stream.readAllBytes()));
+                    }
+                    break;
+                }
+            }
+        }
+
+        classInfos.put(binaryName, classInfo);
+        return classInfo;
+    }
+
+    /**
+     * Returns the checksums of all class files in the jar file, which are read from its central directory.
+     */
+    private NavigableMap<String, Long> getJarChecksums(File file) throws IOException {
+        NavigableMap<String, Long> checksums = jarChecksums.get(file);
+        if (checksums != null) {
+            return checksums;
+        }
+
+        ZipFile zipFile = new ZipFile(file);
+        zipFiles.put(file, zipFile);
+        checksums = new TreeMap<>();
+
+        var entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                checksums.put(entry.getName(), entry.getCrc());
+            }
+        }
+
+        jarChecksums.put(file, checksums);
+        return checksums;
+    }
+
+    /**
+     * Returns the internal names of the classes that are referenced by the class file. These are the
+     * classes in its constant pool, which include its supertypes and nested classes, and the classes in
+     * the descriptors and generic signatures of its members. Names that look like types in other
+     * constants may be included as well; this only makes the fingerprint more conservative.
+     *
+     * @return the referenced classes, or {@code null} if the class file has an unsupported format
+     */
+    static Set<String> readReferencedClasses(byte[] classFile) throws IOException {
+        var input = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (input.readInt() != CLASS_FILE_MAGIC) {
+            return null;
+        }
+
+        input.readUnsignedShort(); // minor_version
+        input.readUnsignedShort(); // major_version
+
+        int constantCount = input.readUnsignedShort();
+        String[] utf8Constants = new String[constantCount];
+        int[] classConstants = new int[constantCount];
+
+        for (int i = 1; i < constantCount; ++i) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8Constants[i] = input.readUTF();
+                case 7 -> classConstants[i] = input.readUnsignedShort();
+                case 8, 16, 19, 20 -> input.skipBytes(2);
+                case 15 -> input.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> input.skipBytes(4);
+                case 5, 6 -> {
+                    input.skipBytes(8);
+                    ++i;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        Set<String> referencedClasses = new TreeSet<>();
+        for (int i = 1; i < constantCount; ++i) {
+            String name = classConstants[i] != 0 ? utf8Constants[classConstants[i]] : null;
+            if (name != null && !name.startsWith("[")) {
+                referencedClasses.add(name);
+            }
+
+            if (utf8Constants[i] != null) {
+                Matcher matcher = DESCRIPTOR_TYPE_PATTERN.matcher(utf8Constants[i]);
+                while (matcher.find()) {
+                    referencedClasses.add(matcher.group(1));
+                }
+            }
+        }
+
+        return referencedClasses;
+    }
+
+}
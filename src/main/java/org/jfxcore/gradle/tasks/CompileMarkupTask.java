@@ -31,37 +31,188 @@ package org.jfxcore.gradle.tasks;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
-import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
+import org.jfxcore.gradle.compiler.CompilerMetrics;
 import org.jfxcore.gradle.compiler.CompilerService;
 import org.jfxcore.gradle.util.PathHelper;
 
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles the markup classes of a source set.
+ * <p>
+ * The class files produced by the Java compiler are copied into the destination directory, where the
+ * class files of markup classes are rewritten by the markup compiler. The class files in the output
+ * directory of the Java compiler are never modified, which allows both tasks to be up-to-date and cacheable.
+ */
+@CacheableTask
 public abstract class CompileMarkupTask extends DefaultTask {
 
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @Internal
     public abstract Property<CompilerService> getCompilerService();
 
+    @Incremental
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @InputFiles
+    public abstract ConfigurableFileCollection getMarkupFiles();
+
+    @Internal
+    public abstract ConfigurableFileCollection getMarkupSourceDirs();
+
+    @Incremental
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @InputFiles
+    public abstract ConfigurableFileCollection getGeneratedSources();
+
+    /**
+     * The manifest that was written by processMarkup. It is a file collection instead of a file property,
+     * since the manifest doesn't exist when processMarkup was skipped because there are no markup files.
+     */
+    @PathSensitive(PathSensitivity.NONE)
+    @InputFiles
+    public abstract ConfigurableFileCollection getManifestFile();
+
+    /**
+     * The directory that contains the parse results that were persisted by processMarkup.
+     */
+    @Optional
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @InputFiles
+    public abstract DirectoryProperty getModelsDir();
+
+    @Incremental
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @InputFiles
+    public abstract DirectoryProperty getClassesDir();
+
+    /**
+     * The compile classpath is normalized to the public API of its classes, so that changes to
+     * the implementation of a dependency don't cause the markup classes to be compiled again.
+     */
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getCompileClasspath();
+
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getCompilerJar();
+
+    /**
+     * If set, the diagnostics of the task are written to JSON and SARIF files in this directory.
+     */
+    @Internal
+    public abstract DirectoryProperty getReportsDir();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDir();
+
+    /**
+     * The file to which the timings and counters of the task are written.
+     */
+    @Internal
+    public abstract RegularFileProperty getTimingsFile();
+
     @TaskAction
-    public void compile() {
+    public void compile(InputChanges inputChanges) {
+        Path classesDir = getClassesDir().get().getAsFile().toPath();
+        Path destinationDir = getDestinationDir().get().getAsFile().toPath();
+        MarkupDiagnostics diagnostics = new MarkupDiagnostics();
         CompilerService compilerService = getCompilerService().get();
+        CompilerMetrics metrics = compilerService.getMetrics(getPath());
+
+        long initTime = compilerService.takeInitTime();
+        if (initTime > 0) {
+            metrics.record("compilerService", initTime);
+        }
 
         try {
-            for (SourceSet sourceSet : new PathHelper(getProject()).getSourceSets()) {
-                var compiler = compilerService.getCompiler(sourceSet);
-                if (compiler == null) {
-                    throw new GradleException(
-                        ":compileMarkup cannot be run in isolation, please run :processMarkup first");
+            MarkupManifest manifest = MarkupManifest.read(getManifestFile().getSingleFile().toPath());
+
+            // Markup files can reference each other, so all markup classes are compiled together whenever
+            // a markup file, a generated file, or the class file of a markup class has changed.
+            boolean compileAll = !inputChanges.isIncremental();
+
+            if (compileAll) {
+                getFileSystemOperations().delete(spec -> spec.delete(destinationDir.toFile()));
+            }
+
+            // Copy the class files that were changed by the Java compiler into the destination directory.
+            for (FileChange change : inputChanges.getFileChanges(getClassesDir())) {
+                if (change.getFileType() == FileType.DIRECTORY) {
+                    continue;
                 }
 
-                compiler.compileFiles();
+                Path target = destinationDir.resolve(change.getNormalizedPath());
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    Files.deleteIfExists(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(change.getFile().toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                compileAll |= !manifest.getOwners(getSourceFileName(change.getNormalizedPath())).isEmpty();
+            }
+
+            compileAll |= inputChanges.getFileChanges(getGeneratedSources()).iterator().hasNext();
+            compileAll |= inputChanges.getFileChanges(getMarkupFiles()).iterator().hasNext();
+
+            if (compileAll) {
+                compileMarkupFiles(manifest, classesDir, destinationDir, diagnostics, metrics);
+            }
+
+            GradleException failure = diagnostics.report(
+                getLogger(), getReportsDir().map(dir -> dir.getAsFile().toPath()).getOrNull(), getName());
+
+            if (failure != null) {
+                throw failure;
             }
         } catch (GradleException ex) {
             throw ex;
         } catch (RuntimeException ex) {
-            if (compilerService.getExceptionHelper().isMarkupException(ex)) {
-                getProject().getLogger().error(compilerService.getExceptionHelper().format(ex));
+            var exceptionHelper = compilerService.getExceptionHelper();
+
+            if (exceptionHelper.isMarkupException(ex)) {
+                getLogger().error(exceptionHelper.format(ex));
             } else {
                 throw ex;
             }
@@ -71,7 +222,94 @@ public abstract class CompileMarkupTask extends DefaultTask {
             String message = ex.getMessage();
             throw new GradleException(
                 message == null || message.isEmpty() ? "Internal compiler error" : message, ex);
+        } finally {
+            compilerService.removeMetrics(getPath());
+            metrics.report(getLogger(), getPath(), getTimingsFile().map(file -> file.getAsFile().toPath()).getOrNull());
+        }
+    }
+
+    private void compileMarkupFiles(MarkupManifest manifest, Path classesDir, Path destinationDir,
+                                    MarkupDiagnostics diagnostics, CompilerMetrics metrics) throws Throwable {
+        Path tempDir = getTemporaryDir().toPath();
+        getFileSystemOperations().delete(spec -> spec.delete(tempDir.toFile()));
+
+        Map<String, File> markupFiles = PathHelper.getMarkupFiles(getMarkupFiles(), getMarkupSourceDirs());
+        if (markupFiles.isEmpty()) {
+            return;
         }
+
+        // The markup classes need to be compiled from the unmodified class files of the Java compiler,
+        // so we copy them again even if they were not changed.
+        metrics.time("copyClasses", () -> {
+            for (String markupFile : markupFiles.keySet()) {
+                copyClassFiles(manifest, classesDir, destinationDir, markupFile);
+            }
+        });
+
+        metrics.increment("markupFiles", markupFiles.size());
+
+        Set<File> classpath = new LinkedHashSet<>();
+        classpath.add(destinationDir.toFile());
+        classpath.addAll(getCompileClasspath().getFiles());
+
+        var exceptionHelper = getCompilerService().get().getExceptionHelper();
+
+        try {
+            compileFiles(classpath, markupFiles, tempDir.resolve("generated"));
+        } catch (RuntimeException ex) {
+            if (!exceptionHelper.isMarkupException(ex)) {
+                throw ex;
+            }
+
+            diagnostics.add(exceptionHelper, ex);
+        }
+    }
+
+    private void compileFiles(Set<File> classpath, Map<String, File> markupFiles, Path generatedDir) throws Throwable {
+        WorkQueue workQueue = getWorkerExecutor().noIsolation();
+        workQueue.submit(CompileMarkupWorkAction.class, params -> {
+            params.getCompilerService().set(getCompilerService());
+            params.getClasspath().from(classpath);
+            params.getMarkupFiles().set(markupFiles);
+            params.getGeneratedSourcesDir().set(generatedDir.toFile());
+            params.getModelsDir().set(getModelsDir());
+            params.getMetricsKey().set(getPath());
+        });
+
+        try {
+            workQueue.await();
+        } catch (WorkerExecutionException ex) {
+            throw MarkupWorkException.unwrap(
+                getCompilerService().get().getExceptionHelper(), ex.getCauses().get(0));
+        }
+    }
+
+    private static void copyClassFiles(MarkupManifest manifest, Path classesDir, Path destinationDir,
+                                       String markupFile) throws IOException {
+        for (String generatedFile : manifest.getGeneratedFiles(markupFile)) {
+            copyClassFiles(classesDir, destinationDir, generatedFile);
+        }
+    }
+
+    /**
+     * Copies the class file of the generated top-level class and the class files of its nested classes.
+     */
+    private static void copyClassFiles(Path classesDir, Path destinationDir, String generatedFile) throws IOException {
+        for (Path classFile : PathHelper.getClassFiles(classesDir, generatedFile)) {
+            Path target = destinationDir.resolve(classesDir.relativize(classFile));
+            Files.createDirectories(target.getParent());
+            Files.copy(classFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns the name of the source file that corresponds to the specified class file.
+     */
+    private static String getSourceFileName(String classFile) {
+        int nameIndex = classFile.lastIndexOf('/') + 1;
+        int nestedIndex = classFile.indexOf('$', nameIndex);
+        int endIndex = nestedIndex >= 0 ? nestedIndex : classFile.lastIndexOf('.');
+        return (endIndex > nameIndex ? classFile.substring(0, endIndex) : classFile) + ".java";
     }
 
 }
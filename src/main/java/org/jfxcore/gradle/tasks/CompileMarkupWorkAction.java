@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jfxcore.gradle.compiler.Compiler;
+import org.jfxcore.gradle.compiler.CompilerMetrics;
+import org.jfxcore.gradle.compiler.CompilerService;
+import org.jfxcore.gradle.util.PathHelper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Compiles the markup classes of a set of markup files.
+ * <p>
+ * Running the compilation as a work item allows Gradle to execute the compileMarkup tasks of
+ * independent source sets at the same time.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class CompileMarkupWorkAction implements WorkAction<CompileMarkupWorkAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+        Property<CompilerService> getCompilerService();
+        ConfigurableFileCollection getClasspath();
+        MapProperty<String, File> getMarkupFiles();
+        DirectoryProperty getGeneratedSourcesDir();
+        DirectoryProperty getModelsDir();
+        Property<String> getMetricsKey();
+    }
+
+    @Override
+    public void execute() {
+        Parameters params = getParameters();
+
+        try {
+            CompilerService compilerService = params.getCompilerService().get();
+            CompilerMetrics metrics = compilerService.getMetrics(params.getMetricsKey().get());
+            CompilerMetrics.FileTimer fileTimer = metrics.newFileTimer();
+            Compiler compiler = newCompiler(compilerService, fileTimer);
+            Map<String, File> markupFiles = params.getMarkupFiles().get();
+            boolean modelsLoaded = false;
+
+            if (params.getModelsDir().isPresent()) {
+                Path modelsDir = params.getModelsDir().get().getAsFile().toPath();
+
+                if (hasModels(markupFiles, modelsDir)) {
+                    long startTime = System.nanoTime();
+                    modelsLoaded = loadModels(compiler, markupFiles, modelsDir);
+                    metrics.record("loadModels", System.nanoTime() - startTime);
+
+                    // The compiler may have loaded some of the models before it failed, so the markup files
+                    // are parsed with a new compiler instance to prevent them from being defined twice.
+                    if (!modelsLoaded) {
+                        compiler = newCompiler(compilerService, fileTimer);
+                    }
+                }
+            }
+
+            compile(compiler, markupFiles, !modelsLoaded, metrics, fileTimer);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new MarkupWorkException(ex);
+        }
+    }
+
+    private Compiler newCompiler(CompilerService compilerService, CompilerMetrics.FileTimer fileTimer)
+            throws Exception {
+        return compilerService.newCompiler(
+            Logging.getLogger(CompileMarkupWorkAction.class), getParameters().getClasspath().getFiles(), fileTimer);
+    }
+
+    private void compile(Compiler compiler, Map<String, File> markupFiles, boolean parse,
+                         CompilerMetrics metrics, CompilerMetrics.FileTimer fileTimer) throws Throwable {
+        if (parse) {
+            fileTimer.reset();
+            metrics.time("parse", () -> compiler.parseFiles(markupFiles));
+        }
+
+        // The compiler expects the source generation stage to have run before the files are compiled,
+        // but we don't need the generated files.
+        metrics.time("generate", () -> compiler.generateSources(getParameters().getGeneratedSourcesDir().get().getAsFile()));
+        fileTimer.reset();
+        metrics.time("compile", compiler::compileFiles);
+    }
+
+    /**
+     * Determines whether the persisted parse results of all markup files were saved by processMarkup.
+     * Since the compiler may parse entire directories, the parse results are only used if they are
+     * available for all markup files; otherwise, the markup files are parsed again.
+     */
+    private static boolean hasModels(Map<String, File> markupFiles, Path modelsDir) {
+        for (String relPath : markupFiles.keySet()) {
+            if (!Files.isRegularFile(PathHelper.getMarkupModelFile(modelsDir, relPath))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Loads the persisted parse results of the markup files that were saved by processMarkup.
+     *
+     * @return {@code true} if the parse results of all markup files were loaded
+     */
+    private static boolean loadModels(Compiler compiler, Map<String, File> markupFiles, Path modelsDir)
+            throws Throwable {
+        for (var entry : markupFiles.entrySet()) {
+            if (!compiler.loadModel(entry.getValue(), PathHelper.getMarkupModelFile(modelsDir, entry.getKey()).toFile())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
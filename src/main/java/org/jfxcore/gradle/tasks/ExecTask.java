@@ -32,109 +32,158 @@ package org.jfxcore.gradle.tasks;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
-import org.gradle.api.plugins.ApplicationPlugin;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.CommandLineArgumentProvider;
 import org.javamodularity.moduleplugin.extensions.RunModuleOptions;
 import org.jfxcore.gradle.JavaFXModule;
 import org.jfxcore.gradle.JavaFXOptions;
 import org.jfxcore.gradle.JavaFXPlatform;
 import org.jfxcore.gradle.util.ModuleHelper;
 
-import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
 
-public class ExecTask extends DefaultTask {
+/**
+ * Validates the JavaFX modules before the application is launched, and configures the run task of the
+ * application plugin to launch the application with the JavaFX modules.
+ * <p>
+ * The run task is configured when the project has been evaluated, so that no project state is
+ * accessed when the tasks are executed.
+ */
+public abstract class ExecTask extends DefaultTask {
 
     private static final Logger LOGGER = Logging.getLogger(ExecTask.class);
 
-    private final Project project;
-    private JavaExec execTask;
-
-    @Inject
-    public ExecTask(Project project) {
-        this.project = project;
-        project.getPluginManager().withPlugin(ApplicationPlugin.APPLICATION_PLUGIN_NAME, e -> {
-            execTask = (JavaExec) project.getTasks().findByName(ApplicationPlugin.TASK_RUN_NAME);
-            if (execTask != null) {
-                execTask.dependsOn(this);
-            } else {
-                throw new GradleException("Run task not found.");
-            }
-        });
-    }
+    @Input
+    public abstract ListProperty<String> getModules();
+
+    @Internal
+    public abstract Property<Boolean> getRunTaskFound();
 
     @TaskAction
-    public void action() throws IOException {
-        if (execTask != null) {
-            JavaFXOptions javaFXOptions = project.getExtensions().getByType(JavaFXOptions.class);
-            JavaFXModule.validateModules(javaFXOptions.getModules());
-
-            var moduleHelper = new ModuleHelper(project);
-            var definedJavaFXModuleNames = new TreeSet<String>();
-            definedJavaFXModuleNames.addAll(javaFXOptions.getModules());
-            definedJavaFXModuleNames.addAll(moduleHelper.getKotlinModuleNames());
-
-            if (!definedJavaFXModuleNames.isEmpty()) {
-                RunModuleOptions moduleOptions = execTask.getExtensions().findByType(RunModuleOptions.class);
-
-                final FileCollection classpathWithoutJavaFXJars = execTask.getClasspath().filter(
-                        jar -> Arrays.stream(JavaFXModule.values()).noneMatch(javaFXModule -> jar.getName().contains(javaFXModule.getArtifactName()))
-                );
-                final FileCollection javaFXPlatformJars = execTask.getClasspath().filter(jar -> isJavaFXJar(jar, javaFXOptions.getPlatform()));
-
-                if (moduleOptions != null) {
-                    LOGGER.info("Modular JavaFX application found");
-                    // Remove empty JavaFX jars from classpath
-                    execTask.setClasspath(classpathWithoutJavaFXJars.plus(javaFXPlatformJars));
-                    definedJavaFXModuleNames.forEach(javaFXModule -> moduleOptions.getAddModules().add(javaFXModule));
-                } else {
-                    LOGGER.info("Non-modular JavaFX application found");
-                    // Remove all JavaFX jars from classpath
-                    execTask.setClasspath(classpathWithoutJavaFXJars);
-
-                    var modulePath = new StringBuilder();
-                    for (var path : moduleHelper.getKotlinJarPaths()) {
-                        if (modulePath.length() > 0) modulePath.append(File.pathSeparator);
-                        modulePath.append(path.getCanonicalPath());
-                    }
-                    for (var path : javaFXPlatformJars) {
-                        if (modulePath.length() > 0) modulePath.append(File.pathSeparator);
-                        modulePath.append(path.getCanonicalPath());
-                    }
-
-                    List<String> javaFXModuleJvmArgs = List.of("--module-path", modulePath.toString());
-
-                    var jvmArgs = new ArrayList<String>();
-                    jvmArgs.add("--add-modules");
-                    jvmArgs.add(String.join(",", definedJavaFXModuleNames));
-
-                    List<String> execJvmArgs = execTask.getJvmArgs();
-                    if (execJvmArgs != null) {
-                        jvmArgs.addAll(execJvmArgs);
-                    }
-                    jvmArgs.addAll(javaFXModuleJvmArgs);
-
-                    execTask.setJvmArgs(jvmArgs);
-                }
-            }
-        } else {
+    public void action() {
+        if (!getRunTaskFound().get()) {
             throw new GradleException("Run task not found. Please, make sure the Application plugin is applied");
         }
+
+        JavaFXModule.validateModules(getModules().get());
+    }
+
+    /**
+     * Configures the run task after the project has been evaluated.
+     */
+    public static void configureRunTask(Project project, JavaExec execTask) {
+        JavaFXOptions javaFXOptions = project.getExtensions().getByType(JavaFXOptions.class);
+
+        var moduleHelper = new ModuleHelper(project);
+        var definedJavaFXModuleNames = new TreeSet<>(javaFXOptions.getModules());
+
+        if (definedJavaFXModuleNames.isEmpty() && !moduleHelper.isKotlinApplied()) {
+            return;
+        }
+
+        // The Kotlin modules are only known when the runtime classpath is resolved.
+        Provider<List<String>> moduleNames = moduleHelper.getKotlinModuleNames().map(kotlinModuleNames -> {
+            var names = new TreeSet<>(definedJavaFXModuleNames);
+            names.addAll(kotlinModuleNames);
+            return new ArrayList<>(names);
+        });
+
+        RunModuleOptions moduleOptions = execTask.getExtensions().findByType(RunModuleOptions.class);
+
+        // Copy the current classpath, since the filtered collections replace it.
+        final FileCollection classpath = project.files(
+            ((ConfigurableFileCollection)execTask.getClasspath()).getFrom().toArray());
+        final FileCollection classpathWithoutJavaFXJars = classpath.filter(new NonJavaFXJarSpec());
+        final FileCollection javaFXPlatformJars = classpath.filter(new JavaFXJarSpec(javaFXOptions.getPlatform()));
+
+        if (moduleOptions != null) {
+            LOGGER.info("Modular JavaFX application found");
+            // Remove empty JavaFX jars from classpath
+            execTask.setClasspath(classpathWithoutJavaFXJars.plus(javaFXPlatformJars));
+            moduleOptions.getAddModules().addAll(moduleNames.get());
+        } else {
+            LOGGER.info("Non-modular JavaFX application found");
+            // Remove all JavaFX jars from classpath
+            execTask.setClasspath(classpathWithoutJavaFXJars);
+            execTask.getJvmArgumentProviders().add(new ModulePathArgumentProvider(
+                moduleNames, moduleHelper.getKotlinJarPaths().plus(javaFXPlatformJars)));
+        }
     }
 
-    private static boolean isJavaFXJar(File jar, JavaFXPlatform platform) {
-        return jar.isFile() &&
-                Arrays.stream(JavaFXModule.values()).anyMatch(javaFXModule ->
-                    javaFXModule.compareJarFileName(platform, jar.getName()) ||
-                    javaFXModule.getModuleJarFileName().equals(jar.getName()));
+    static class NonJavaFXJarSpec implements Spec<File> {
+        @Override
+        public boolean isSatisfiedBy(File jar) {
+            return Arrays.stream(JavaFXModule.values()).noneMatch(
+                javaFXModule -> jar.getName().contains(javaFXModule.getArtifactName()));
+        }
+    }
+
+    static class JavaFXJarSpec implements Spec<File> {
+        private final JavaFXPlatform platform;
+
+        JavaFXJarSpec(JavaFXPlatform platform) {
+            this.platform = platform;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(File jar) {
+            return jar.isFile() &&
+                    Arrays.stream(JavaFXModule.values()).anyMatch(javaFXModule ->
+                        javaFXModule.compareJarFileName(platform, jar.getName()) ||
+                        javaFXModule.getModuleJarFileName().equals(jar.getName()));
+        }
+    }
+
+    private static class ModulePathArgumentProvider implements CommandLineArgumentProvider {
+        private final Provider<List<String>> moduleNames;
+        private final FileCollection modulePath;
+
+        ModulePathArgumentProvider(Provider<List<String>> moduleNames, FileCollection modulePath) {
+            this.moduleNames = moduleNames;
+            this.modulePath = modulePath;
+        }
+
+        @Input
+        public Provider<List<String>> getModuleNames() {
+            return moduleNames;
+        }
+
+        @Classpath
+        public FileCollection getModulePath() {
+            return modulePath;
+        }
+
+        @Override
+        public Iterable<String> asArguments() {
+            var path = new StringBuilder();
+            for (var file : modulePath) {
+                if (path.length() > 0) path.append(File.pathSeparator);
+                try {
+                    path.append(file.getCanonicalPath());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+
+            return List.of("--add-modules", String.join(",", moduleNames.get()), "--module-path", path.toString());
+        }
     }
 }
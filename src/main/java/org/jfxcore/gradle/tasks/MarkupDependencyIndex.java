@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records which types of the compile classpath are referenced by each markup file of a source set,
+ * together with the fingerprints of these types at the time the markup file was processed.
+ * <p>
+ * When the compile classpath changes, the markup files are only processed again if any of their
+ * referenced types have changed; since markup files can reference each other, all markup files of
+ * the source set are processed in this case. A referenced type is either a fully qualified class name,
+ * or a package name followed by {@code .*} for on-demand imports and the package of the markup file.
+ * Types that are reached through the members of a referenced type can't be determined from the markup
+ * file, so the fingerprint of a type covers all classes that its class file transitively references.
+ */
+final class MarkupDependencyIndex {
+
+    private static final char SEPARATOR = '\t';
+    private static final char FINGERPRINT_SEPARATOR = '=';
+
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("<\\?import\\s+([\\w.$]+(?:\\.\\*)?)\\s*\\?>");
+    private static final Pattern QUALIFIED_ELEMENT_PATTERN = Pattern.compile("</?([a-z_]\\w*(?:\\.\\w[\\w$]*)+)[\\s/>]");
+    private static final Pattern QUALIFIED_ATTRIBUTE_PATTERN = Pattern.compile("\\s([a-z_]\\w*(?:\\.\\w[\\w$]*)+)\\s*=");
+    private static final Pattern ATTRIBUTE_VALUE_PATTERN = Pattern.compile("=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+    private static final Pattern QUALIFIED_TYPE_PATTERN = Pattern.compile(
+        "(?<![\\w.$])([a-z_]\\w*(?:\\.[a-z_]\\w*)*(?:\\.[A-Z][\\w$]*)+)");
+
+    private final Map<String, Map<String, String>> entries = new TreeMap<>();
+
+    public static MarkupDependencyIndex read(Path file) throws IOException {
+        var index = new MarkupDependencyIndex();
+        if (!Files.isRegularFile(file)) {
+            return index;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(String.valueOf(SEPARATOR));
+                if (parts.length == 0 || parts[0].isEmpty()) {
+                    continue;
+                }
+
+                Map<String, String> fingerprints = index.entries.computeIfAbsent(parts[0], key -> new TreeMap<>());
+                for (int i = 1; i < parts.length; ++i) {
+                    int separator = parts[i].lastIndexOf(FINGERPRINT_SEPARATOR);
+                    if (separator > 0) {
+                        fingerprints.put(parts[i].substring(0, separator), parts[i].substring(separator + 1));
+                    }
+                }
+            }
+        }
+
+        return index;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (var entry : entries.entrySet()) {
+                writer.write(entry.getKey());
+                for (var fingerprint : entry.getValue().entrySet()) {
+                    writer.write(SEPARATOR);
+                    writer.write(fingerprint.getKey());
+                    writer.write(FINGERPRINT_SEPARATOR);
+                    writer.write(fingerprint.getValue());
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Records the types that are referenced by the specified markup file, and their current fingerprints.
+     */
+    public void put(String markupFile, File file, ClasspathFingerprints fingerprints) throws IOException {
+        Map<String, String> referencedTypes = new TreeMap<>();
+        Set<String> types = new TreeSet<>(getReferencedTypes(file));
+
+        // Types in the package of the markup file can be referenced without an import.
+        int index = markupFile.lastIndexOf('/');
+        if (index > 0) {
+            types.add(markupFile.substring(0, index).replace('/', '.') + ".*");
+        }
+
+        for (String type : types) {
+            referencedTypes.put(type, fingerprints.get(type));
+        }
+
+        entries.put(markupFile, referencedTypes);
+    }
+
+    /**
+     * Determines whether the specified markup file needs to be processed again, which is the case if it is
+     * not contained in the index, or if any of its referenced types have a different or unknown fingerprint.
+     */
+    public boolean isStale(String markupFile, ClasspathFingerprints fingerprints) throws IOException {
+        Map<String, String> referencedTypes = entries.get(markupFile);
+        if (referencedTypes == null) {
+            return true;
+        }
+
+        for (var entry : referencedTypes.entrySet()) {
+            if (entry.getValue().equals(ClasspathFingerprints.UNKNOWN)
+                    || !entry.getValue().equals(fingerprints.get(entry.getKey()))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the types that are referenced by the specified markup file.
+     */
+    static Set<String> getReferencedTypes(File markupFile) throws IOException {
+        return getReferencedTypes(Files.readString(markupFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the types that are imported by the markup, or that are referenced by fully qualified
+     * names in element names, static property names ({@code pkg.Type.property}) and attribute values.
+     * Types that are referenced by their simple names are covered by the imports.
+     */
+    static Set<String> getReferencedTypes(String content) {
+        Set<String> types = new TreeSet<>();
+
+        Matcher matcher = IMPORT_PATTERN.matcher(content);
+        while (matcher.find()) {
+            types.add(matcher.group(1));
+        }
+
+        matcher = QUALIFIED_ELEMENT_PATTERN.matcher(content);
+        while (matcher.find()) {
+            types.add(getOwnerType(matcher.group(1)));
+        }
+
+        matcher = QUALIFIED_ATTRIBUTE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String ownerType = getOwnerType(name);
+
+            // Attributes like xmlns:fx or fx.id are not static properties.
+            if (!ownerType.equals(name)) {
+                types.add(ownerType);
+            }
+        }
+
+        matcher = ATTRIBUTE_VALUE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            String value = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            Matcher typeMatcher = QUALIFIED_TYPE_PATTERN.matcher(value);
+            while (typeMatcher.find()) {
+                types.add(typeMatcher.group(1));
+            }
+        }
+
+        return types;
+    }
+
+    /**
+     * Returns the type that declares a static property ({@code pkg.Type.property}), or the name
+     * itself if it doesn't end with a property name. Property names start with a lowercase letter.
+     */
+    private static String getOwnerType(String name) {
+        int index = name.lastIndexOf('.');
+        if (index < 0 || !Character.isLowerCase(name.charAt(index + 1))) {
+            return name;
+        }
+
+        String ownerType = name.substring(0, index);
+        int ownerIndex = ownerType.lastIndexOf('.');
+        return Character.isUpperCase(ownerType.charAt(ownerIndex + 1)) ? ownerType : name;
+    }
+
+}
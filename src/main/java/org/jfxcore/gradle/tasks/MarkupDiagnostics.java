@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.jfxcore.gradle.compiler.ExceptionHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.jfxcore.gradle.util.JsonHelper.quote;
+
+/**
+ * Collects the errors of the markup files that were processed by a task. Since the compiler stops at
+ * the first error, and all markup files of a task are processed by a single compiler, this is usually
+ * a single error.
+ * <p>
+ * If a reports directory is specified, the diagnostics are also written to a JSON file and a
+ * SARIF file in this directory.
+ */
+final class MarkupDiagnostics {
+
+    private static final String SARIF_SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+
+    /**
+     * A single diagnostic. Line and column numbers are one-based; the column number is 0 if it is not known.
+     */
+    record Diagnostic(File file, int line, int column, String message, String text) {}
+
+    private final Set<Diagnostic> diagnostics = new LinkedHashSet<>();
+
+    /**
+     * Adds the diagnostic of a markup exception. If the same error was already reported, it is not added again.
+     */
+    public void add(ExceptionHelper exceptionHelper, RuntimeException ex) {
+        diagnostics.add(new Diagnostic(
+            exceptionHelper.getSourceFile(ex),
+            exceptionHelper.getLine(ex) + 1,
+            exceptionHelper.getColumn(ex) + 1,
+            ex.getMessage(),
+            exceptionHelper.format(ex)));
+    }
+
+    /**
+     * Logs all diagnostics and writes the reports if a reports directory is specified.
+     *
+     * @return the exception that fails the task, or {@code null} if there are no diagnostics
+     */
+    public GradleException report(Logger logger, Path reportsDir, String reportName) throws IOException {
+        for (Diagnostic diagnostic : diagnostics) {
+            logger.error(diagnostic.text());
+        }
+
+        if (reportsDir != null) {
+            Files.createDirectories(reportsDir);
+            writeJson(reportsDir.resolve(reportName + ".json"));
+            writeSarif(reportsDir.resolve(reportName + ".sarif"));
+        }
+
+        if (diagnostics.isEmpty()) {
+            return null;
+        }
+
+        return new GradleException(String.format(
+            "Compilation failed with %d error%s; see the compiler error output for details.",
+            diagnostics.size(), diagnostics.size() == 1 ? "" : "s"));
+    }
+
+    private void writeJson(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"diagnostics\": [");
+            String separator = "\n";
+
+            for (Diagnostic diagnostic : diagnostics) {
+                writer.write(separator);
+                writer.write("    {\"severity\": \"error\", \"file\": " + quote(path(diagnostic.file()))
+                    + ", \"line\": " + diagnostic.line() + ", \"column\": " + diagnostic.column()
+                    + ", \"message\": " + quote(diagnostic.message()) + "}");
+                separator = ",\n";
+            }
+
+            writer.write(diagnostics.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        }
+    }
+
+    private void writeSarif(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"$schema\": " + quote(SARIF_SCHEMA) + ",\n  \"version\": \"2.1.0\",\n");
+            writer.write("  \"runs\": [{\n    \"tool\": {\"driver\": {\"name\": \"JFXcore FXML compiler\"}},\n");
+            writer.write("    \"results\": [");
+            String separator = "\n";
+
+            for (Diagnostic diagnostic : diagnostics) {
+                String uri = diagnostic.file() != null ? diagnostic.file().toURI().toString() : "";
+                String region = diagnostic.column() > 0
+                    ? "{\"startLine\": " + diagnostic.line() + ", \"startColumn\": " + diagnostic.column() + "}"
+                    : "{\"startLine\": " + diagnostic.line() + "}";
+
+                writer.write(separator);
+                writer.write("      {\"level\": \"error\", \"message\": {\"text\": " + quote(diagnostic.message())
+                    + "}, \"locations\": [{\"physicalLocation\": {\"artifactLocation\": {\"uri\": " + quote(uri)
+                    + "}, \"region\": " + region + "}}]}");
+                separator = ",\n";
+            }
+
+            writer.write(diagnostics.isEmpty() ? "]\n  }]\n}\n" : "\n    ]\n  }]\n}\n");
+        }
+    }
+
+    private static String path(File file) {
+        return file != null ? file.getPath() : "";
+    }
+
+}
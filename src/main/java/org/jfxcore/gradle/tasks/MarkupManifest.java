@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Records which generated files were produced for each markup file of a source set.
+ * <p>
+ * All paths are relative paths with forward slashes. A generated file that cannot be attributed
+ * to a single markup file is recorded for all markup files that were processed together with it,
+ * which means that all of them need to be processed again when one of them changes.
+ */
+final class MarkupManifest {
+
+    private static final char SEPARATOR = '\t';
+
+    private final Map<String, Set<String>> entries = new TreeMap<>();
+
+    public static MarkupManifest read(Path file) throws IOException {
+        var manifest = new MarkupManifest();
+        if (!Files.isRegularFile(file)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(String.valueOf(SEPARATOR));
+                if (parts.length > 0 && !parts[0].isEmpty()) {
+                    Set<String> generatedFiles = manifest.entries.computeIfAbsent(parts[0], key -> new TreeSet<>());
+                    generatedFiles.addAll(Arrays.asList(parts).subList(1, parts.length));
+                }
+            }
+        }
+
+        return manifest;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (var entry : entries.entrySet()) {
+                writer.write(entry.getKey());
+                for (String generatedFile : entry.getValue()) {
+                    writer.write(SEPARATOR);
+                    writer.write(generatedFile);
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    public Set<String> getGeneratedFiles(String markupFile) {
+        Set<String> generatedFiles = entries.get(markupFile);
+        return generatedFiles != null ? generatedFiles : Set.of();
+    }
+
+    /**
+     * Returns all markup files that share the specified generated file.
+     */
+    public Set<String> getOwners(String generatedFile) {
+        Set<String> owners = new TreeSet<>();
+        for (var entry : entries.entrySet()) {
+            if (entry.getValue().contains(generatedFile)) {
+                owners.add(entry.getKey());
+            }
+        }
+
+        return owners;
+    }
+
+    /**
+     * Records the files that were generated when the specified markup files were processed together.
+     * A generated file is attributed to the markup file in the same directory with the longest file
+     * name that is a prefix of the generated file name; if there is no such markup file, it is
+     * attributed to all markup files.
+     */
+    public void putAll(Collection<String> markupFiles, Collection<String> generatedFiles) {
+        for (String markupFile : markupFiles) {
+            entries.computeIfAbsent(markupFile, key -> new TreeSet<>());
+        }
+
+        for (String generatedFile : generatedFiles) {
+            String owner = null;
+
+            for (String markupFile : markupFiles) {
+                if (getParent(markupFile).equals(getParent(generatedFile))
+                        && getFileName(generatedFile).startsWith(getBaseName(markupFile))
+                        && (owner == null || getBaseName(markupFile).length() > getBaseName(owner).length())) {
+                    owner = markupFile;
+                }
+            }
+
+            for (String markupFile : owner != null ? Set.of(owner) : markupFiles) {
+                entries.get(markupFile).add(generatedFile);
+            }
+        }
+    }
+
+    private static String getParent(String path) {
+        int index = path.lastIndexOf('/');
+        return index < 0 ? "" : path.substring(0, index);
+    }
+
+    private static String getFileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String getBaseName(String path) {
+        String name = getFileName(path);
+        int index = name.lastIndexOf('.');
+        return index < 0 ? name : name.substring(0, index);
+    }
+
+}
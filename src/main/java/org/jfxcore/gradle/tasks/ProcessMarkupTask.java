@@ -31,67 +31,183 @@ package org.jfxcore.gradle.tasks;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
-import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
+import org.jfxcore.gradle.compiler.CompilerMetrics;
 import org.jfxcore.gradle.compiler.CompilerService;
+import org.jfxcore.gradle.compiler.ExceptionHelper;
 import org.jfxcore.gradle.util.PathHelper;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.function.Predicate;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
 
+/**
+ * Parses the markup files of a source set and generates the corresponding Java source files.
+ */
 public abstract class ProcessMarkupTask extends DefaultTask {
 
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @Internal
     public abstract Property<CompilerService> getCompilerService();
 
+    @Incremental
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @InputFiles
+    public abstract ConfigurableFileCollection getMarkupFiles();
+
+    @Internal
+    public abstract ConfigurableFileCollection getMarkupSourceDirs();
+
+    /**
+     * The compile classpath is normalized to the public API of its classes, so that changes to
+     * the implementation of a dependency don't cause the markup files to be processed again.
+     */
+    @Incremental
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getCompileClasspath();
+
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getCompilerJar();
+
+    /**
+     * If set, the diagnostics of the task are written to JSON and SARIF files in this directory.
+     */
+    @Internal
+    public abstract DirectoryProperty getReportsDir();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getGeneratedSourcesDir();
+
+    @OutputFile
+    public abstract RegularFileProperty getManifestFile();
+
+    /**
+     * The file that records the types that are referenced by each markup file.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getDependencyIndexFile();
+
+    /**
+     * The directory that contains the persisted parse results of the markup files,
+     * if they are supported by the compiler.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getModelsDir();
+
+    /**
+     * The file to which the timings and counters of the task are written.
+     */
+    @Internal
+    public abstract RegularFileProperty getTimingsFile();
+
     @TaskAction
-    public void process() {
-        Project project = getProject();
-        PathHelper pathHelper = new PathHelper(project);
+    public void process(InputChanges inputChanges) {
         CompilerService compilerService = getCompilerService().get();
+        Path genSrcDir = getGeneratedSourcesDir().get().getAsFile().toPath();
+        Path manifestFile = getManifestFile().get().getAsFile().toPath();
+        Path dependencyIndexFile = getDependencyIndexFile().get().getAsFile().toPath();
+        MarkupDiagnostics diagnostics = new MarkupDiagnostics();
+        CompilerMetrics metrics = compilerService.getMetrics(getPath());
+
+        long initTime = compilerService.takeInitTime();
+        if (initTime > 0) {
+            metrics.record("compilerService", initTime);
+        }
 
         try {
-            // Invoke the FXML parse and source generation stages for every source set.
-            // This will generate .java source files that are placed in the generated sources directory.
-            for (SourceSet sourceSet : pathHelper.getSourceSets()) {
-                var compiler = compilerService.newCompiler(sourceSet, getLogger());
+            // The markup files are selected by the markup source directory set of the source set.
+            // Their relative paths are determined once, and passed on to the compiler.
+            Map<String, File> markupFiles = PathHelper.getMarkupFiles(getMarkupFiles(), getMarkupSourceDirs());
+            MarkupDependencyIndex dependencyIndex = inputChanges.isIncremental()
+                ? MarkupDependencyIndex.read(dependencyIndexFile) : new MarkupDependencyIndex();
 
-                for (File sourceDir : sourceSet.getAllSource().getSrcDirs()) {
-                    compiler.parseFiles(sourceDir);
-                }
+            // When only the compile classpath has changed, the markup files don't need to be processed again
+            // if none of them references a changed type.
+            if (inputChanges.isIncremental()
+                    && !hasMarkupChanges(inputChanges)
+                    && !hasDependencyChanges(inputChanges, markupFiles, dependencyIndex, metrics)) {
+                return;
+            }
+
+            // Markup files can reference each other, so the compiler always processes all markup files
+            // of the source set. Generated files with the same content as before are not replaced, and
+            // generated files that are not produced again are deleted afterwards.
+            MarkupManifest manifest = new MarkupManifest();
+            Set<String> staleFiles = new HashSet<>();
+
+            PathHelper.visitFiles(genSrcDir, (file, attributes) -> staleFiles.add(
+                genSrcDir.relativize(file).toString().replace(File.separatorChar, '/')));
+            PathHelper.deleteDirectory(getModelsDir().get().getAsFile().toPath());
+
+            boolean succeeded = markupFiles.isEmpty() || processMarkupFiles(
+                compilerService, manifest, markupFiles, genSrcDir, staleFiles, diagnostics, metrics);
+
+            GradleException failure = diagnostics.report(
+                getLogger(), getReportsDir().map(dir -> dir.getAsFile().toPath()).getOrNull(), getName());
+
+            if (failure != null) {
+                throw failure;
+            }
+
+            if (!succeeded) {
+                throw new GradleException("Compilation failed; see the compiler error output for details.");
+            }
 
-                Path genSrcDir = pathHelper.getGeneratedSourcesDir(sourceSet).toPath();
-                compiler.generateSources(genSrcDir.toFile());
-
-                // Delete all .class files that may have been created by a previous compiler run.
-                // This is necessary because the FXML compiler needs a 'clean slate' to work with.
-                Predicate<Path> fileFilter = path -> path.toString().toLowerCase().endsWith(".java");
-                for (Path file : pathHelper.enumerateFiles(genSrcDir, fileFilter)) {
-                    String fileName = pathHelper.getFileNameWithoutExtension(file.toFile()) + ".class";
-                    Path relFile = genSrcDir.relativize(file).getParent().resolve(fileName);
-                    Path classesDir = sourceSet.getJava().getClassesDirectory().get().getAsFile().toPath();
-                    Path classFile = classesDir.resolve(relFile);
-
-                    if (Files.exists(classFile)) {
-                        try {
-                            Files.delete(classFile);
-                        } catch (IOException ex) {
-                            throw new GradleException("Cannot delete " + classFile, ex);
-                        }
+            MarkupDependencyIndex newDependencyIndex = new MarkupDependencyIndex();
+
+            // The fingerprints are computed lazily, so only the types referenced by markup files are read.
+            metrics.time("fingerprintClasspath", () -> {
+                try (var fingerprints = new ClasspathFingerprints(getCompileClasspath())) {
+                    for (var entry : markupFiles.entrySet()) {
+                        newDependencyIndex.put(entry.getKey(), entry.getValue(), fingerprints);
                     }
                 }
-            }
+            });
+
+            metrics.time("deleteStale", () -> deleteStaleFiles(staleFiles, genSrcDir, metrics));
+            manifest.write(manifestFile);
+            newDependencyIndex.write(dependencyIndexFile);
         } catch (GradleException ex) {
             throw ex;
         } catch (RuntimeException ex) {
             if (compilerService.getExceptionHelper().isMarkupException(ex)) {
-                project.getLogger().error(compilerService.getExceptionHelper().format(ex));
+                getLogger().error(compilerService.getExceptionHelper().format(ex));
             } else {
                 throw ex;
             }
@@ -101,6 +217,149 @@ public abstract class ProcessMarkupTask extends DefaultTask {
             String message = ex.getMessage();
             throw new GradleException(
                 message == null || message.isEmpty() ? "Internal compiler error" : message, ex);
+        } finally {
+            compilerService.removeMetrics(getPath());
+            metrics.report(getLogger(), getPath(), getTimingsFile().map(file -> file.getAsFile().toPath()).getOrNull());
+        }
+    }
+
+    private boolean hasMarkupChanges(InputChanges inputChanges) {
+        for (FileChange change : inputChanges.getFileChanges(getMarkupFiles())) {
+            if (change.getFileType() != FileType.DIRECTORY) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines whether the compile classpath has changed in a way that affects any of the markup files.
+     */
+    private boolean hasDependencyChanges(InputChanges inputChanges, Map<String, File> markupFiles,
+                                         MarkupDependencyIndex dependencyIndex, CompilerMetrics metrics)
+            throws IOException {
+        if (!inputChanges.getFileChanges(getCompileClasspath()).iterator().hasNext()) {
+            return false;
+        }
+
+        long startTime = System.nanoTime();
+
+        try (var fingerprints = new ClasspathFingerprints(getCompileClasspath())) {
+            for (String markupFile : markupFiles.keySet()) {
+                if (dependencyIndex.isStale(markupFile, fingerprints)) {
+                    return true;
+                }
+            }
+
+            return false;
+        } finally {
+            metrics.record("fingerprintClasspath", System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Deletes the stale files that were not generated again. Their class files are removed by the
+     * Java compiler, which owns the classes directory.
+     */
+    private static void deleteStaleFiles(Set<String> staleFiles, Path genSrcDir, CompilerMetrics metrics)
+            throws IOException {
+        for (String generatedFile : staleFiles) {
+            if (Files.deleteIfExists(genSrcDir.resolve(generatedFile))) {
+                metrics.increment("deletedFiles", 1);
+            }
+        }
+    }
+
+    /**
+     * Processes all markup files, and moves the generated files into the generated sources directory.
+     *
+     * @return {@code true} if the markup files were processed successfully; otherwise, the errors
+     *         of the compiler are added to the diagnostics and no generated files are moved
+     */
+    private boolean processMarkupFiles(CompilerService compilerService, MarkupManifest manifest,
+                                       Map<String, File> markupFiles, Path genSrcDir, Set<String> staleFiles,
+                                       MarkupDiagnostics diagnostics, CompilerMetrics metrics) throws Throwable {
+        Path tempDir = getTemporaryDir().toPath();
+        PathHelper.deleteDirectory(tempDir);
+
+        // All markup files are parsed by a single compiler instance, since markup files can reference
+        // each other. The compiler runs on a worker thread, which allows Gradle to run other work
+        // (for example the markup tasks of other projects) in the meantime.
+        Path stagedSourcesDir = tempDir.resolve("generated");
+        metrics.increment("markupFiles", markupFiles.size());
+
+        WorkQueue workQueue = getWorkerExecutor().noIsolation();
+        submit(workQueue, markupFiles, stagedSourcesDir);
+
+        List<? extends Throwable> failures = await(workQueue);
+        if (!failures.isEmpty()) {
+            collectDiagnostics(compilerService.getExceptionHelper(), failures, diagnostics);
+            return false;
+        }
+
+        List<String> generatedFiles = new ArrayList<>();
+
+        metrics.time("moveGenerated", () -> PathHelper.visitFiles(stagedSourcesDir, (file, attributes) -> {
+            String relPath = stagedSourcesDir.relativize(file).toString().replace(File.separatorChar, '/');
+            Path target = genSrcDir.resolve(relPath);
+            generatedFiles.add(relPath);
+            staleFiles.remove(relPath);
+
+            // A file that was generated with the same content as before is not rewritten. Together with
+            // the deletion of stale files, this keeps the generated sources directory up to date without
+            // wiping it, so that orphaned files are removed while unchanged files are left untouched.
+            if (Files.isRegularFile(target) && attributes.size() == Files.size(target)
+                    && Files.mismatch(file, target) < 0) {
+                metrics.increment("unchangedFiles", 1);
+                return;
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }));
+
+        metrics.increment("generatedFiles", generatedFiles.size());
+        manifest.putAll(markupFiles.keySet(), generatedFiles);
+        return true;
+    }
+
+    private void submit(WorkQueue workQueue, Map<String, File> markupFiles, Path stagedSourcesDir) {
+        workQueue.submit(ProcessMarkupWorkAction.class, params -> {
+            params.getCompilerService().set(getCompilerService());
+            params.getCompileClasspath().from(getCompileClasspath());
+            params.getMarkupFiles().set(markupFiles);
+            params.getGeneratedSourcesDir().set(stagedSourcesDir.toFile());
+            params.getModelsDir().set(getModelsDir());
+            params.getMetricsKey().set(getPath());
+        });
+    }
+
+    /**
+     * Waits for all submitted work items to complete, and returns the failures of the failed work items.
+     */
+    private static List<? extends Throwable> await(WorkQueue workQueue) {
+        try {
+            workQueue.await();
+            return List.of();
+        } catch (WorkerExecutionException ex) {
+            return ex.getCauses();
+        }
+    }
+
+    /**
+     * Adds the markup errors of the failed work items to the diagnostics, or rethrows the original
+     * exception if a work item failed for another reason.
+     */
+    private void collectDiagnostics(ExceptionHelper exceptionHelper, List<? extends Throwable> failures,
+                                    MarkupDiagnostics diagnostics) throws Throwable {
+        for (Throwable failure : failures) {
+            Throwable cause = MarkupWorkException.unwrap(exceptionHelper, failure);
+            if (cause instanceof RuntimeException ex && exceptionHelper.isMarkupException(ex)) {
+                diagnostics.add(exceptionHelper, ex);
+            } else {
+                throw cause;
+            }
         }
     }
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jfxcore.gradle.tasks;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jfxcore.gradle.compiler.Compiler;
+import org.jfxcore.gradle.compiler.CompilerMetrics;
+import org.jfxcore.gradle.compiler.CompilerService;
+import org.jfxcore.gradle.util.PathHelper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Parses the markup files of a source set and generates the corresponding Java source files.
+ * <p>
+ * The work action runs without Gradle's classloader isolation, since the compiler is loaded by the
+ * isolated classloader of the {@link CompilerService}.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class ProcessMarkupWorkAction implements WorkAction<ProcessMarkupWorkAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+        Property<CompilerService> getCompilerService();
+        ConfigurableFileCollection getCompileClasspath();
+        MapProperty<String, File> getMarkupFiles();
+        DirectoryProperty getGeneratedSourcesDir();
+        DirectoryProperty getModelsDir();
+        Property<String> getMetricsKey();
+    }
+
+    @Override
+    public void execute() {
+        Parameters params = getParameters();
+
+        try {
+            CompilerService compilerService = params.getCompilerService().get();
+            CompilerMetrics metrics = compilerService.getMetrics(params.getMetricsKey().get());
+            CompilerMetrics.FileTimer fileTimer = metrics.newFileTimer();
+            Compiler compiler = compilerService.newCompiler(
+                Logging.getLogger(ProcessMarkupWorkAction.class), params.getCompileClasspath().getFiles(), fileTimer);
+
+            Map<String, File> markupFiles = params.getMarkupFiles().get();
+
+            fileTimer.reset();
+            metrics.time("parse", () -> compiler.parseFiles(markupFiles));
+
+            if (params.getModelsDir().isPresent()) {
+                metrics.time("saveModels", () -> saveModels(
+                    compiler, markupFiles, params.getModelsDir().get().getAsFile().toPath()));
+            }
+
+            metrics.time("generate", () -> compiler.generateSources(params.getGeneratedSourcesDir().get().getAsFile()));
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new MarkupWorkException(ex);
+        }
+    }
+
+    /**
+     * Saves the parse results of the markup files, so that compileMarkup doesn't need to parse them again.
+     */
+    private static void saveModels(Compiler compiler, Map<String, File> markupFiles, Path modelsDir)
+            throws Throwable {
+        for (var entry : markupFiles.entrySet()) {
+            Path modelFile = PathHelper.getMarkupModelFile(modelsDir, entry.getKey());
+            Files.createDirectories(modelFile.getParent());
+
+            if (!compiler.saveModel(entry.getValue(), modelFile.toFile())) {
+                return;
+            }
+        }
+    }
+
+}
@@ -30,45 +30,74 @@
 package org.jfxcore.gradle.util;
 
 import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
 
 import java.io.File;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Determines the Kotlin modules that need to be added to the module path of a JavaFX application.
+ * <p>
+ * The Kotlin plugin is detected by its plugin id, and the runtime classpath is only resolved when
+ * the returned providers are queried, so that no tasks are realized and no configurations are
+ * resolved when the run task is configured.
+ */
 public class ModuleHelper {
 
-    private final Set<String> kotlinModuleNames = new HashSet<>();
-    private final Set<File> kotlinJarPaths = new HashSet<>();
+    private static final String[] KOTLIN_PLUGIN_IDS = {"org.jetbrains.kotlin.jvm", "kotlin"};
+
+    private final Project project;
+    private final boolean kotlinApplied;
+    private Map<String, File> kotlinModules;
 
     public ModuleHelper(Project project) {
-        try {
-            var kotlinCompileClass = Class.forName("org.jetbrains.kotlin.gradle.tasks.KotlinCompile");
-
-            if (project.getTasks().matching(kotlinCompileClass::isInstance).size() > 0) {
-                var pathHelper = new PathHelper(project);
-
-                var stdlib = pathHelper.getRuntimeDependencyJar("org.jetbrains.kotlin", "kotlin-stdlib");
-                if (stdlib != null) {
-                    kotlinModuleNames.add("kotlin.stdlib");
-                    kotlinJarPaths.add(stdlib);
-                }
-
-                var reflect = pathHelper.getRuntimeDependencyJar("org.jetbrains.kotlin", "kotlin-reflect");
-                if (reflect != null) {
-                    kotlinModuleNames.add("kotlin.reflect");
-                    kotlinJarPaths.add(reflect);
-                }
-            }
-        } catch (ClassNotFoundException ignored) {
+        this.project = project;
+
+        boolean kotlinApplied = false;
+        for (String pluginId : KOTLIN_PLUGIN_IDS) {
+            kotlinApplied |= project.getPluginManager().hasPlugin(pluginId);
         }
+
+        this.kotlinApplied = kotlinApplied;
+    }
+
+    public boolean isKotlinApplied() {
+        return kotlinApplied;
+    }
+
+    public Provider<Set<String>> getKotlinModuleNames() {
+        return project.provider(() -> getKotlinModules().keySet());
     }
 
-    public Set<String> getKotlinModuleNames() {
-        return kotlinModuleNames;
+    public FileCollection getKotlinJarPaths() {
+        return project.files(project.provider(() -> getKotlinModules().values()));
     }
 
-    public Set<File> getKotlinJarPaths() {
-        return kotlinJarPaths;
+    private synchronized Map<String, File> getKotlinModules() {
+        if (kotlinModules != null) {
+            return kotlinModules;
+        }
+
+        kotlinModules = new LinkedHashMap<>();
+
+        if (kotlinApplied) {
+            var pathHelper = new PathHelper(project);
+
+            var stdlib = pathHelper.getRuntimeDependencyJar("org.jetbrains.kotlin", "kotlin-stdlib");
+            if (stdlib != null) {
+                kotlinModules.put("kotlin.stdlib", stdlib);
+            }
+
+            var reflect = pathHelper.getRuntimeDependencyJar("org.jetbrains.kotlin", "kotlin-reflect");
+            if (reflect != null) {
+                kotlinModules.put("kotlin.reflect", reflect);
+            }
+        }
+
+        return kotlinModules;
     }
 
 }
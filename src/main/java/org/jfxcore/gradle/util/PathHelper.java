@@ -30,42 +30,90 @@
 package org.jfxcore.gradle.util;
 
 import org.gradle.api.Project;
+import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 public final class PathHelper {
 
+    public static final String MARKUP_FILE_EXTENSION = ".fxml";
+    public static final String MARKUP_FILE_PATTERN = "**/*" + MARKUP_FILE_EXTENSION;
+    public static final String MARKUP_SOURCE_NAME = "markup";
+
     private final Project project;
 
     public PathHelper(Project project) {
         this.project = project;
     }
 
+    public File getGeneratedSourcesDir() {
+        return project.getBuildDir().toPath().resolve("generated/sources/fxml/java").toFile();
+    }
+
     public File getGeneratedSourcesDir(SourceSet sourceSet) {
+        return getGeneratedSourcesDir().toPath().resolve(sourceSet.getName()).toFile();
+    }
+
+    public File getMarkupManifestFile(SourceSet sourceSet) {
+        return project.getBuildDir().toPath()
+            .resolve("generated/sources/fxml/manifest")
+            .resolve(sourceSet.getName() + ".manifest").toFile();
+    }
+
+    public File getMarkupDependencyIndexFile(SourceSet sourceSet) {
+        return project.getBuildDir().toPath()
+            .resolve("generated/sources/fxml/manifest")
+            .resolve(sourceSet.getName() + ".dependencies").toFile();
+    }
+
+    public File getMarkupClassesDir(SourceSet sourceSet) {
         return project.getBuildDir().toPath()
-            .resolve("generated/sources/fxml/java")
+            .resolve("classes/markup")
             .resolve(sourceSet.getName()).toFile();
     }
 
-    public Set<SourceSet> getSourceSets() {
-        return project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets();
+    public File getMarkupModelsDir(SourceSet sourceSet) {
+        return project.getBuildDir().toPath()
+            .resolve("tmp/markup")
+            .resolve(sourceSet.getName()).toFile();
     }
 
-    public Set<File> getCompileClasspath() {
-        return getSourceSets().stream()
-            .flatMap(sourceSet -> sourceSet.getCompileClasspath().getFiles().stream())
-            .collect(Collectors.toSet());
+    public File getMarkupReportsDir() {
+        return project.getBuildDir().toPath().resolve("reports/markup").toFile();
+    }
+
+    public File getMarkupTimingsFile(String taskName) {
+        return project.getBuildDir().toPath()
+            .resolve("reports/markup/timings")
+            .resolve(taskName + ".json").toFile();
+    }
+
+    /**
+     * Returns the markup source directory set of the source set.
+     */
+    public SourceDirectorySet getMarkupSource(SourceSet sourceSet) {
+        return (SourceDirectorySet)sourceSet.getExtensions().getByName(MARKUP_SOURCE_NAME);
+    }
+
+    public SourceSetContainer getSourceSets() {
+        return project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets();
     }
 
     public File getRuntimeDependencyJar(String groupId, String name) {
@@ -80,23 +128,147 @@ public final class PathHelper {
         return null;
     }
 
-    public Iterable<Path> enumerateFiles(Path basePath, Predicate<Path> filter) throws IOException {
-        Iterator<Path> it;
-        if (Files.isDirectory(basePath)) {
-            try (Stream<Path> stream = Files.walk(basePath)) {
-                it = stream.filter(p -> Files.isRegularFile(p) && filter.test(p)).collect(Collectors.toList()).iterator();
+    /**
+     * Returns the markup files keyed by their paths relative to the source directory that contains them,
+     * with forward slashes. The directories are not searched for files. If several directories contain a
+     * markup file with the same relative path, the file in the first directory wins.
+     */
+    public static Map<String, File> getMarkupFiles(Iterable<File> files, Iterable<File> sourceDirs) {
+        Map<String, File> markupFiles = new TreeMap<>();
+        List<Path> remainingFiles = new ArrayList<>();
+        for (File file : files) {
+            remainingFiles.add(file.toPath());
+        }
+
+        for (File sourceDir : sourceDirs) {
+            Path basePath = sourceDir.toPath();
+
+            for (var it = remainingFiles.iterator(); it.hasNext(); ) {
+                Path file = it.next();
+                if (file.startsWith(basePath)) {
+                    String relPath = basePath.relativize(file).toString().replace(File.separatorChar, '/');
+                    markupFiles.putIfAbsent(relPath, file.toFile());
+                    it.remove();
+                }
+            }
+        }
+
+        return markupFiles;
+    }
+
+    /**
+     * Returns the file that contains the persisted parse result of the specified markup file.
+     */
+    public static Path getMarkupModelFile(Path modelsDir, String relPath) {
+        return modelsDir.resolve(relPath + ".model");
+    }
+
+    /**
+     * Returns the class files of the top-level class and the nested classes that correspond to the
+     * specified generated source file, or an empty list if the file is not a Java source file.
+     */
+    public static List<Path> getClassFiles(Path classesDir, String generatedFile) throws IOException {
+        if (!generatedFile.endsWith(".java")) {
+            return List.of();
+        }
+
+        Path sourceFile = Path.of(generatedFile);
+        Path packageDir = sourceFile.getParent();
+        Path classPackageDir = packageDir != null ? classesDir.resolve(packageDir) : classesDir;
+        String className = sourceFile.getFileName().toString();
+        className = className.substring(0, className.length() - ".java".length());
+
+        if (!Files.isDirectory(classPackageDir)) {
+            return List.of();
+        }
+
+        List<Path> classFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(classPackageDir, className + "{,$*}.class")) {
+            for (Path classFile : stream) {
+                classFiles.add(classFile);
+            }
+        }
+
+        return classFiles;
+    }
+
+    /**
+     * Receives the regular files that are found by {@link #visitFiles}.
+     */
+    @FunctionalInterface
+    public interface FileConsumer {
+        void accept(Path file, BasicFileAttributes attributes) throws IOException;
+    }
+
+    /**
+     * Visits all regular files in the directory and its subdirectories.
+     * If the directory doesn't exist, no files are visited.
+     */
+    public static void visitFiles(Path basePath, FileConsumer consumer) throws IOException {
+        visitFiles(basePath, false, consumer);
+    }
+
+    /**
+     * Visits all regular files in the directory and its subdirectories. If {@code parallel} is
+     * {@code true}, the top-level subdirectories are visited concurrently, which requires the
+     * consumer to be thread-safe. If the directory doesn't exist, no files are visited.
+     */
+    public static void visitFiles(Path basePath, boolean parallel, FileConsumer consumer) throws IOException {
+        if (!Files.isDirectory(basePath)) {
+            return;
+        }
+
+        if (!parallel) {
+            walkFiles(basePath, consumer);
+            return;
+        }
+
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(basePath)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    directories.add(path);
+                } else if (attributes.isRegularFile()) {
+                    consumer.accept(path, attributes);
+                }
             }
+        }
 
-            return () -> it;
+        try {
+            directories.parallelStream().forEach(directory -> {
+                try {
+                    walkFiles(directory, consumer);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
         }
+    }
+
+    private static void walkFiles(Path basePath, FileConsumer consumer) throws IOException {
+        Files.walkFileTree(basePath, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (attributes.isRegularFile()) {
+                    consumer.accept(file, attributes);
+                }
 
-        return Collections::emptyIterator;
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
 
-    public String getFileNameWithoutExtension(File file) {
-        String name = file.getName();
-        int lastIdx = name.lastIndexOf('.');
-        return name.substring(0, lastIdx < 0 ? name.length() : lastIdx);
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> stream = Files.walk(directory)) {
+                for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
     }
 
 }
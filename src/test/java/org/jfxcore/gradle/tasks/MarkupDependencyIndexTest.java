@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.jfxcore.gradle.tasks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarkupDependencyIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importsAreReferencedTypes() {
+        Set<String> types = MarkupDependencyIndex.getReferencedTypes("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <?import javafx.scene.control.Button?>
+            <?import javafx.scene.layout.*?>
+            <?import org.example.Outer.Inner?>
+            <VBox xmlns="http://javafx.com/javafx" xmlns:fx="http://jfxcore.org/fxml/2.0"/>
+            """);
+
+        assertEquals(Set.of("javafx.scene.control.Button", "javafx.scene.layout.*", "org.example.Outer.Inner"), types);
+    }
+
+    @Test
+    void qualifiedNamesAreReferencedTypes() {
+        Set<String> types = MarkupDependencyIndex.getReferencedTypes("""
+            <VBox xmlns="http://javafx.com/javafx" xmlns:fx="http://jfxcore.org/fxml/2.0">
+                <org.example.CustomControl org.example.Layout.margin="1" fx:id="control"/>
+                <Label>
+                    <org.example.Tooltips.tooltip>
+                        <Tooltip text="{fx:type org.example.Values}"/>
+                    </org.example.Tooltips.tooltip>
+                </Label>
+                <ListView fx:typeArguments='org.example.Item'/>
+            </VBox>
+            """);
+
+        assertEquals(Set.of("org.example.CustomControl", "org.example.Layout", "org.example.Tooltips",
+                            "org.example.Values", "org.example.Item"), types);
+    }
+
+    @Test
+    void nestedClassesAreResolved() throws IOException {
+        Path classesDir = compile("classes", Set.of("""
+            package org.example;
+            public class Outer {
+                public static class Inner {}
+            }
+            """));
+
+        try (var fingerprints = new ClasspathFingerprints(List.of(classesDir.toFile()))) {
+            assertNotEquals(ClasspathFingerprints.MISSING, fingerprints.get("org.example.Outer.Inner"));
+            assertEquals(fingerprints.get("org.example.Outer$Inner"), fingerprints.get("org.example.Outer.Inner"));
+            assertNotEquals(ClasspathFingerprints.MISSING, fingerprints.get("org.example.Outer.*"));
+            assertEquals(ClasspathFingerprints.MISSING, fingerprints.get("org.example.Outer.Missing"));
+        }
+    }
+
+    @Test
+    void fingerprintIncludesSupertypes() throws IOException {
+        String derived = """
+            package org.example;
+            public class Derived extends Base implements Marker {}
+            """;
+        String marker = """
+            package org.example;
+            public interface Marker {}
+            """;
+
+        Path before = compile("before", Set.of(derived, marker, """
+            package org.example;
+            public class Base {}
+            """));
+        Path after = compile("after", Set.of(derived, marker, """
+            package org.example;
+            public class Base { public void changed() {} }
+            """));
+
+        try (var fingerprintsBefore = new ClasspathFingerprints(List.of(before.toFile()));
+             var fingerprintsAfter = new ClasspathFingerprints(List.of(after.toFile()))) {
+            assertEquals(fingerprintsBefore.get("org.example.Marker"), fingerprintsAfter.get("org.example.Marker"));
+            assertNotEquals(fingerprintsBefore.get("org.example.Derived"), fingerprintsAfter.get("org.example.Derived"));
+        }
+    }
+
+    @Test
+    void fingerprintIncludesMemberTypes() throws IOException {
+        String control = """
+            package org.example;
+            public class Control {
+                public Model getModel() { return null; }
+                public java.util.List<Item> getItems() { return null; }
+            }
+            """;
+
+        Path before = compile("before", Set.of(control,
+            "package org.example; public class Model {}",
+            "package org.example; public class Item {}"));
+        Path after = compile("after", Set.of(control,
+            "package org.example; public class Model { public String getName() { return null; } }",
+            "package org.example; public class Item {}"));
+        Path afterItem = compile("afterItem", Set.of(control,
+            "package org.example; public class Model {}",
+            "package org.example; public class Item { public int value; }"));
+
+        try (var fingerprintsBefore = new ClasspathFingerprints(List.of(before.toFile()));
+             var fingerprintsAfter = new ClasspathFingerprints(List.of(after.toFile()));
+             var fingerprintsAfterItem = new ClasspathFingerprints(List.of(afterItem.toFile()))) {
+            assertNotEquals(fingerprintsBefore.get("org.example.Control"), fingerprintsAfter.get("org.example.Control"));
+            assertNotEquals(fingerprintsBefore.get("org.example.Control"), fingerprintsAfterItem.get("org.example.Control"));
+        }
+    }
+
+    @Test
+    void jarAndDirectoryFingerprintsAreEqual() throws IOException {
+        Path classesDir = compile("classes", Set.of("""
+            package org.example;
+            public class Control {
+                class Skin {}
+            }
+            """));
+        Path jarFile = jar(classesDir);
+
+        try (var directoryFingerprints = new ClasspathFingerprints(List.of(classesDir.toFile()));
+             var jarFingerprints = new ClasspathFingerprints(List.of(jarFile.toFile()))) {
+            for (String type : List.of("org.example.Control", "org.example.*", "org.example.Missing")) {
+                assertEquals(directoryFingerprints.get(type), jarFingerprints.get(type), type);
+            }
+        }
+    }
+
+    @Test
+    void markupFileIsStaleWhenReferencedTypeChanges() throws IOException {
+        Path markupFile = tempDir.resolve("Test.fxml");
+        Files.writeString(markupFile, """
+            <?import org.example.Control?>
+            <Control xmlns="http://javafx.com/javafx"/>
+            """);
+
+        Path before = compile("before", Set.of("package org.example; public class Control {}"));
+        Path after = compile("after", Set.of("package org.example; public class Control { int value; }"));
+        var index = new MarkupDependencyIndex();
+
+        try (var fingerprints = new ClasspathFingerprints(List.of(before.toFile()))) {
+            index.put("Test.fxml", markupFile.toFile(), fingerprints);
+            assertFalse(index.isStale("Test.fxml", fingerprints));
+        }
+
+        try (var fingerprints = new ClasspathFingerprints(List.of(after.toFile()))) {
+            assertTrue(index.isStale("Test.fxml", fingerprints));
+        }
+    }
+
+    private Path compile(String name, Set<String> sources) throws IOException {
+        Path sourceDir = tempDir.resolve(name + "-src");
+        Path classesDir = tempDir.resolve(name);
+        Files.createDirectories(classesDir);
+
+        List<String> arguments = new ArrayList<>(List.of("-d", classesDir.toString()));
+        for (String source : sources) {
+            String className = source.replaceAll("(?s).*?(class|interface)\\s+(\\w+).*", "$2");
+            Path sourceFile = sourceDir.resolve(className + ".java");
+            Files.createDirectories(sourceDir);
+            Files.writeString(sourceFile, source);
+            arguments.add(sourceFile.toString());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(String[]::new)));
+        return classesDir;
+    }
+
+    private Path jar(Path classesDir) throws IOException {
+        Path jarFile = tempDir.resolve(classesDir.getFileName() + ".jar");
+
+        try (var output = new ZipOutputStream(Files.newOutputStream(jarFile));
+             Stream<Path> files = Files.walk(classesDir)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                output.putNextEntry(new ZipEntry(classesDir.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, output);
+                output.closeEntry();
+            }
+        }
+
+        return jarFile;
+    }
+
+}
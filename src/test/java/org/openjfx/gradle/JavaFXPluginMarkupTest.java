@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openjfx.gradle;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaFXPluginMarkupTest {
+
+    private static final String PACKAGE_DIR = "src/main/java/org/jfxcore/test";
+    private static final String MARKUP_DIR = "src/main/resources/org/jfxcore/test";
+
+    @TempDir
+    Path projectDir;
+
+    @BeforeEach
+    void setup() throws IOException {
+        Files.writeString(projectDir.resolve("settings.gradle"), "rootProject.name = 'markup'\n");
+        Files.writeString(projectDir.resolve("build.gradle"), """
+            plugins {
+                id 'java'
+                id 'org.jfxcore.javafxplugin'
+            }
+
+            repositories {
+                mavenCentral()
+                maven { url 'https://oss.sonatype.org/content/repositories/snapshots' }
+            }
+
+            javafx {
+                modules = [ 'javafx.controls' ]
+            }
+            """);
+
+        Files.createDirectories(projectDir.resolve(PACKAGE_DIR));
+        Files.createDirectories(projectDir.resolve(MARKUP_DIR));
+    }
+
+    @Test
+    void markupFilesCanReferenceEachOther() throws IOException {
+        writeMarkupClass("Outer", "<?import org.jfxcore.test.Inner?>", "<Inner/>");
+        writeMarkupClass("Inner", "", "<Label text=\"inner\"/>");
+
+        BuildResult result = build("classes");
+
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileMainMarkup").getOutcome());
+        assertTrue(Files.isRegularFile(markupClassFile("Outer")), "Outer.class not found");
+        assertTrue(Files.isRegularFile(markupClassFile("Inner")), "Inner.class not found");
+    }
+
+    @Test
+    void projectWithoutMarkupFilesBuilds() throws IOException {
+        Files.writeString(projectDir.resolve(PACKAGE_DIR).resolve("Plain.java"), """
+            package org.jfxcore.test;
+
+            public class Plain {}
+            """);
+
+        BuildResult result = build("classes", "testClasses");
+
+        assertEquals(TaskOutcome.NO_SOURCE, result.task(":processMainMarkup").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileMainMarkup").getOutcome());
+        assertTrue(Files.isRegularFile(projectDir.resolve("build/classes/markup/main/org/jfxcore/test/Plain.class")),
+                   "Plain.class not found");
+    }
+
+    @Test
+    void incrementalBuildsUpdateGeneratedSources() throws IOException {
+        writeMarkupClass("First", "", "<Label text=\"first\"/>");
+        writeMarkupClass("Second", "", "<Label text=\"second\"/>");
+        build("classes");
+
+        Path secondSource = generatedSourceFile("Second");
+        String secondContent = Files.readString(secondSource);
+        assertTrue(Files.isRegularFile(generatedSourceFile("First")), "FirstBase.java not found");
+        assertManifestAttribution();
+
+        // Editing a markup file leaves the generated sources of other markup files unchanged.
+        writeMarkupClass("First", "", "<Button text=\"first\"/>");
+        BuildResult result = build("classes");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":processMainMarkup").getOutcome());
+        assertTrue(Files.readString(generatedSourceFile("First")).contains("Button"), "FirstBase.java not updated");
+        assertEquals(secondContent, Files.readString(secondSource));
+
+        // Adding a markup file generates its sources and records them in the manifest.
+        writeMarkupClass("Third", "", "<Label text=\"third\"/>");
+        build("classes");
+        assertTrue(Files.isRegularFile(generatedSourceFile("Third")), "ThirdBase.java not found");
+        assertTrue(Files.isRegularFile(markupClassFile("Third")), "Third.class not found");
+        assertTrue(readManifest().containsKey("org/jfxcore/test/Third.fxml"), "Third.fxml not in manifest");
+        assertManifestAttribution();
+
+        // Deleting a markup file deletes its orphaned generated sources and manifest entry.
+        Files.delete(projectDir.resolve(MARKUP_DIR).resolve("Third.fxml"));
+        Files.delete(projectDir.resolve(PACKAGE_DIR).resolve("Third.java"));
+        build("classes");
+        assertFalse(Files.exists(generatedSourceFile("Third")), "ThirdBase.java not deleted");
+        assertFalse(Files.exists(markupClassFile("Third")), "Third.class not deleted");
+        assertFalse(readManifest().containsKey("org/jfxcore/test/Third.fxml"), "Third.fxml still in manifest");
+        assertTrue(Files.isRegularFile(generatedSourceFile("First")), "FirstBase.java was deleted");
+        assertEquals(secondContent, Files.readString(secondSource));
+    }
+
+    @Test
+    void sourceSetsAddedAfterThePluginHaveMarkupTasks() throws IOException {
+        Files.writeString(projectDir.resolve("build.gradle"), """
+            sourceSets {
+                integration
+            }
+
+            tasks.register('printMarkupDirs') {
+                def markupDirs = sourceSets.integration.markup.srcDirs
+                doLast {
+                    println "markupDirs=" + markupDirs.collect { it.name }.sort()
+                }
+            }
+            """, StandardOpenOption.APPEND);
+
+        BuildResult result = build("printMarkupDirs", "processIntegrationMarkup");
+
+        assertTrue(result.getOutput().contains("markupDirs=[resources]"), "markup source not configured");
+        assertEquals(TaskOutcome.NO_SOURCE, result.task(":processIntegrationMarkup").getOutcome());
+    }
+
+    private void assertManifestAttribution() throws IOException {
+        for (var entry : readManifest().entrySet()) {
+            String baseName = entry.getKey().substring(entry.getKey().lastIndexOf('/') + 1).replace(".fxml", "");
+            assertFalse(entry.getValue().isEmpty(), "No generated files for " + entry.getKey());
+
+            for (String generatedFile : entry.getValue()) {
+                String fileName = generatedFile.substring(generatedFile.lastIndexOf('/') + 1);
+                assertTrue(fileName.startsWith(baseName),
+                           generatedFile + " is attributed to " + entry.getKey());
+            }
+        }
+    }
+
+    private Map<String, List<String>> readManifest() throws IOException {
+        Map<String, List<String>> manifest = new TreeMap<>();
+        for (String line : Files.readAllLines(projectDir.resolve("build/generated/sources/fxml/manifest/main.manifest"))) {
+            List<String> parts = List.of(line.split("\t"));
+            manifest.put(parts.get(0), parts.subList(1, parts.size()));
+        }
+
+        return manifest;
+    }
+
+    private Path generatedSourceFile(String name) {
+        return projectDir.resolve("build/generated/sources/fxml/java/main/org/jfxcore/test").resolve(name + "Base.java");
+    }
+
+    private void writeMarkupClass(String name, String imports, String content) throws IOException {
+        Files.writeString(projectDir.resolve(MARKUP_DIR).resolve(name + ".fxml"), """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <?import javafx.scene.control.*?>
+            <?import javafx.scene.layout.*?>
+            %s
+            <VBox xmlns="http://javafx.com/javafx" xmlns:fx="http://jfxcore.org/fxml/2.0">
+                %s
+            </VBox>
+            """.formatted(imports, content));
+
+        Files.writeString(projectDir.resolve(PACKAGE_DIR).resolve(name + ".java"), """
+            package org.jfxcore.test;
+
+            public class %1$s extends %1$sBase {
+                public %1$s() {
+                    initializeComponent();
+                }
+            }
+            """.formatted(name));
+    }
+
+    private Path markupClassFile(String name) {
+        return projectDir.resolve("build/classes/markup/main/org/jfxcore/test").resolve(name + ".class");
+    }
+
+    private BuildResult build(String... tasks) {
+        String[] arguments = new String[tasks.length + 1];
+        System.arraycopy(tasks, 0, arguments, 0, tasks.length);
+        arguments[tasks.length] = "--stacktrace";
+
+        return GradleRunner.create()
+                .withProjectDir(projectDir.toFile())
+                .withPluginClasspath()
+                .withArguments(arguments)
+                .forwardOutput()
+                .build();
+    }
+}
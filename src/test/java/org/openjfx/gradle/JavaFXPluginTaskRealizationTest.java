@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022, JFXcore
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openjfx.gradle;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaFXPluginTaskRealizationTest {
+
+    private static final String REALIZED_PREFIX = "Realized task: ";
+
+    @TempDir
+    Path projectDir;
+
+    @Test
+    void helpDoesNotRealizePluginTasks() throws IOException {
+        Files.writeString(projectDir.resolve("settings.gradle"), "rootProject.name = 'task-realization'\n");
+        Files.writeString(projectDir.resolve("build.gradle"), """
+            plugins {
+                id 'application'
+                id 'org.jfxcore.javafxplugin'
+            }
+
+            repositories {
+                mavenCentral()
+            }
+
+            application {
+                mainClass = 'org.jfxcore.test.Main'
+            }
+
+            tasks.configureEach { println "%s$it.name" }
+            """.formatted(REALIZED_PREFIX));
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(projectDir.toFile())
+                .withPluginClasspath()
+                .withArguments("help", "--stacktrace")
+                .forwardOutput()
+                .build();
+
+        List<String> realizedTasks = result.getOutput().lines()
+                .filter(line -> line.startsWith(REALIZED_PREFIX))
+                .map(line -> line.substring(REALIZED_PREFIX.length()))
+                .toList();
+
+        assertTrue(realizedTasks.contains("help"), "Task listener not invoked");
+
+        for (String task : List.of("configJavafxRun", "processMarkup", "compileMarkup",
+                                   "processMainMarkup", "compileMainMarkup",
+                                   "processTestMarkup", "compileTestMarkup")) {
+            assertFalse(realizedTasks.contains(task), "Task was realized: " + task);
+        }
+    }
+}